@@ -0,0 +1,89 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크용 데이터 생성
+ * - 서비스를 거치지 않고 EntityManager로 바로 넣는다. (측정 대상이 아니기 때문에)
+ * - BATCH 건마다 flush/clear 해서 영속성 컨텍스트가 커지지 않도록 한다.
+ */
+public class BenchmarkData {
+
+    private static final int BATCH = 500;
+    public static final int STOCK = Integer.MAX_VALUE / 2;   // 측정 중에 재고가 떨어지지 않도록
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+
+    public BenchmarkData(ApplicationContext context) {
+        this.transactionTemplate = context.getBean(TransactionTemplate.class);
+        this.em = context.getBean(EntityManager.class);
+    }
+
+    public List<Long> createMembers(int count) {
+        return inBatches(count, i -> {
+            Member member = new Member();
+            member.setName("bench-member-" + i);
+            member.setAddress(new Address("서울", "강가", String.valueOf(i)));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    public List<Long> createBooks(int count) {
+        return inBatches(count, i -> {
+            Book book = new Book();
+            book.setName("bench-book-" + i);
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    /**
+     * 회원, 상품을 돌아가면서 주문 count건 생성 (주문당 상품 1개)
+     * - 재고는 STOCK 만큼 넉넉하게 잡아두었기 때문에 차감하지 않는다.
+     */
+    public List<Long> createOrders(List<Long> memberIds, List<Long> itemIds, int count) {
+        return inBatches(count, i -> {
+            Member member = em.getReference(Member.class, memberIds.get(i % memberIds.size()));
+            Item item = em.getReference(Item.class, itemIds.get(i % itemIds.size()));
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(new Address("서울", "강가", String.valueOf(i)));
+            OrderItem orderItem = OrderItem.createOrderItem(item, 10000, 1);
+            Order order = Order.createOrder(member, delivery, orderItem);
+            em.persist(order);
+            return order.getId();
+        });
+    }
+
+    private List<Long> inBatches(int count, IndexedPersist persist) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += BATCH) {
+            int start = from;
+            int end = Math.min(from + BATCH, count);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = start; i < end; i++) {
+                    ids.add(persist.persist(i));
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+        return ids;
+    }
+
+    @FunctionalInterface
+    private interface IndexedPersist {
+        Long persist(int index);
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * id 생성 비용 비교
+ * - sequence: Member의 PooledSequenceGenerator (blockSize 1 = row마다 시퀀스 조회)
+ * - snowflake: Order의 SnowflakeIdGenerator (DB 왕복 없음)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"1", "50"})
+    public int blockSize;
+
+    private ConfigurableApplicationContext context;
+    private SessionImplementor session;
+    private IdentifierGenerator sequenceGenerator;
+    private IdentifierGenerator snowflakeGenerator;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.jpa.properties.jpashop.id.block-size=" + blockSize);
+        SessionFactoryImplementor sessionFactory = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactoryImplementor.class);
+
+        sequenceGenerator = sessionFactory.getMetamodel().entityPersister(Member.class).getIdentifierGenerator();
+        snowflakeGenerator = sessionFactory.getMetamodel().entityPersister(Order.class).getIdentifierGenerator();
+
+        session = (SessionImplementor) sessionFactory.openSession();
+        session.beginTransaction();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.getTransaction().rollback();
+        session.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Serializable sequence() {
+        return sequenceGenerator.generate(session, null);
+    }
+
+    @Benchmark
+    public Serializable snowflake() {
+        return snowflakeGenerator.generate(session, null);
+    }
+}
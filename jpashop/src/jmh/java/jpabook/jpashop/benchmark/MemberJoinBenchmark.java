@@ -0,0 +1,68 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.dto.MemberJoinResult;
+import jpabook.jpashop.service.MemberService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 membersPerCall명 가입: join() 반복 vs joinAll() 1번
+ * - join(): 가입마다 트랜잭션 + 중복 조회 + INSERT
+ * - joinAll(): 트랜잭션 1번 + IN 쿼리 + JDBC batch INSERT
+ * 이름은 호출마다 새로 만든다. (중복이면 가입이 안 되니까)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberJoinBenchmark {
+
+    @Param({"100", "1000"})
+    public int membersPerCall;
+
+    ConfigurableApplicationContext context;
+    MemberService memberService;
+    long sequence;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        memberService = context.getBean(MemberService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long joinEach() {
+        long sum = 0;
+        for (Member member : newMembers()) {
+            sum += memberService.join(member);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<MemberJoinResult> joinAll() {
+        return memberService.joinAll(newMembers());
+    }
+
+    private List<Member> newMembers() {
+        List<Member> members = new ArrayList<>(membersPerCall);
+        for (int i = 0; i < membersPerCall; i++) {
+            Member member = new Member();
+            member.setName("bench-join-" + sequence++);
+            members.add(member);
+        }
+        return members;
+    }
+}
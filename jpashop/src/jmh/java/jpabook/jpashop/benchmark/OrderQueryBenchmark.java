@@ -0,0 +1,101 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 목록 조회 비교 (/api/v2 ~ v4 simple-orders 와 같은 모양)
+ * - findAllByString / findAllByCriteria: 엔티티만 조회 + LAZY 회원/배송 접근 => N+1
+ * - findAllWithMemberDelivery: fetch join 1번
+ * - findOrderDtos: DTO로 필요한 컬럼만 1번 (페이징 없이 전체)
+ *
+ * 엔티티 조회는 API가 하는 것처럼 회원 이름, 배송 주소까지 꺼내야 실제 비용이 나온다.
+ * 페이징 조회는 pageSize(최대 OrderSearch.MAX_SIZE) 만큼 읽는다. => orderCount가 pageSize보다 크면 findOrderDtos만 더 많이 읽는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderQueryBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int orderCount;
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTransaction;
+    private OrderRepository orderRepository;
+    private OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkData data = new BenchmarkData(context);
+        data.createOrders(data.createMembers(100), data.createBooks(100), orderCount);
+
+        readOnlyTransaction = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderSimpleQueryRepository = context.getBean(OrderSimpleQueryRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void findAllByString(Blackhole bh) {
+        readOnlyTransaction.executeWithoutResult(status ->
+                consume(orderRepository.findAllByString(search()), bh));
+    }
+
+    @Benchmark
+    public void findAllByCriteria(Blackhole bh) {
+        readOnlyTransaction.executeWithoutResult(status ->
+                consume(orderRepository.findAllByCriteria(search()), bh));
+    }
+
+    @Benchmark
+    public void findAllWithMemberDelivery(Blackhole bh) {
+        readOnlyTransaction.executeWithoutResult(status ->
+                consume(orderRepository.findAllWithMemberDelivery(search()).getContent(), bh));
+    }
+
+    @Benchmark
+    public void findOrderDtos(Blackhole bh) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (OrderSimpleQueryDto dto : orderSimpleQueryRepository.findOrderDtos()) {
+                bh.consume(dto.getName());
+                bh.consume(dto.getAddress());
+            }
+        });
+    }
+
+    private OrderSearch search() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setSize(pageSize);
+        return orderSearch;
+    }
+
+    private void consume(List<Order> orders, Blackhole bh) {
+        for (Order order : orders) {
+            bh.consume(order.getMember().getName());
+            bh.consume(order.getDelivery().getAddress());
+        }
+    }
+}
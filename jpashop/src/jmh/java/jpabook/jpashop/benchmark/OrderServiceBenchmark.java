@@ -0,0 +1,90 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 / 주문 취소 (서비스 전체: 트랜잭션 + 재시도 AOP + 재고 UPDATE + INSERT)
+ * - orderCount: 미리 쌓아둔 주문 수 (테이블이 커졌을 때 INSERT / 인덱스 비용이 얼마나 느는지)
+ * - cancelOrder는 같은 주문을 두 번 취소할 수 없어서, 반복(iteration)마다 주문을 CANCEL_BATCH건 새로 만들고 그만큼만 취소한다.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final int MEMBERS = 100;
+    private static final int ITEMS = 100;
+    private static final int CANCEL_BATCH = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int orderCount;
+
+    ConfigurableApplicationContext context;
+    BenchmarkData data;
+    OrderService orderService;
+    List<Long> memberIds;
+    List<Long> itemIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        data = new BenchmarkData(context);
+        orderService = context.getBean(OrderService.class);
+
+        memberIds = data.createMembers(MEMBERS);
+        itemIds = data.createBooks(ITEMS);
+        data.createOrders(memberIds, itemIds, orderCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Long order() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return orderService.order(
+                memberIds.get(random.nextInt(MEMBERS)),
+                itemIds.get(random.nextInt(ITEMS)),
+                1);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = CANCEL_BATCH)
+    @Measurement(iterations = 5, batchSize = CANCEL_BATCH)
+    public void cancelOrder(CancelTargets targets) {
+        orderService.cancelOrder(targets.next());
+    }
+
+    /**
+     * 취소할 주문 목록 (cancelOrder에서만 만들어진다)
+     */
+    @State(Scope.Benchmark)
+    public static class CancelTargets {
+
+        private List<Long> orderIds;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void prepare(OrderServiceBenchmark benchmark) {
+            orderIds = benchmark.data.createOrders(benchmark.memberIds, benchmark.itemIds, CANCEL_BATCH);
+            next = 0;
+        }
+
+        Long next() {
+            return orderIds.get(next++);
+        }
+    }
+}
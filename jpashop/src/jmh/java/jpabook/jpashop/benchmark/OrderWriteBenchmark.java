@@ -0,0 +1,102 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 쓰기 - JDBC batch INSERT 비교 (초당 주문 수, 주문 1건당 SQL 수)
+ * - 주문 접수 큐(group commit)처럼 트랜잭션 하나에 주문 ORDERS_PER_TX건을 묶는다. (OrderService.orderInBatch)
+ * - config
+ *      - single-insert: INSERT를 한 건씩 전송 (JDBC batch 끔)
+ *      - jdbc-batch: JDBC batch INSERT (batch_size 100, order_inserts)
+ * - statements 카운터 = 하이버네이트가 준비한 SQL 수 (JDBC batch는 1개) => statements / 주문 수 로 비교
+ *
+ * 여기서 쓰는 주문, 주문상품, 배송 id는 SnowflakeIdGenerator가 메모리에서 만든다. (시퀀스 조회 없음)
+ * => 두 config의 차이는 JDBC batch 뿐이다. pooled-lo 시퀀스(block-size)는 이 벤치마크로 잴 수 없다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderWriteBenchmark {
+
+    private static final int ORDERS_PER_TX = 50;
+
+    @Param({"single-insert", "jdbc-batch"})
+    public String config;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    OrderService orderService;
+    Statistics statistics;
+    Long memberId;
+    Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(properties(config));
+        BenchmarkData data = new BenchmarkData(context);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        orderService = context.getBean(OrderService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        memberId = data.createMembers(1).get(0);
+        itemId = data.createBooks(1).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_TX)
+    public void orders(Statements statements) {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ORDERS_PER_TX; i++) {
+                orderService.orderInBatch(memberId, itemId, 1);
+            }
+        });
+        statements.statements += statistics.getPrepareStatementCount() - before;
+    }
+
+    /**
+     * 반복(iteration)마다 실행한 SQL 수 - 결과에 orders 옆에 같이 나온다.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+        }
+    }
+
+    private static String[] properties(String config) {
+        String statistics = "spring.jpa.properties.hibernate.generate_statistics=true";
+        if ("single-insert".equals(config)) {
+            return new String[]{statistics,
+                    "spring.jpa.properties.hibernate.jdbc.batch_size=0",
+                    "spring.jpa.properties.hibernate.order_inserts=false",
+                    "spring.jpa.properties.hibernate.order_updates=false"};
+        }
+        // application.yml 값에 기대지 않고 비교 대상 설정을 직접 준다.
+        return new String[]{statistics,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                "spring.jpa.properties.hibernate.order_inserts=true",
+                "spring.jpa.properties.hibernate.order_updates=true"};
+    }
+}
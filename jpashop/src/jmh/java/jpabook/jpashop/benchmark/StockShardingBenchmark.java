@@ -0,0 +1,54 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 상품 하나에 주문이 몰릴 때: 단일 row 재고 vs 분산 재고(버킷)
+ * - bucketCount: 0이면 item.stock_quantity 한 row, 그 외에는 버킷 수
+ * - 64개 쓰레드가 같은 상품을 주문한다. 커넥션 풀이 병목이 되지 않도록 쓰레드 수만큼 커넥션을 준다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class StockShardingBenchmark {
+
+    @Param({"0", "16"})
+    public int bucketCount;
+
+    ConfigurableApplicationContext context;
+    OrderService orderService;
+    Long memberId;
+    Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.datasource.hikari.maximum-pool-size=64");
+        BenchmarkData data = new BenchmarkData(context);
+        orderService = context.getBean(OrderService.class);
+
+        memberId = data.createMembers(1).get(0);
+        itemId = data.createBooks(1).get(0);
+        if (bucketCount > 0) {
+            context.getBean(ItemService.class).shardStock(itemId, bucketCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long order() {
+        return orderService.order(memberId, itemId, 1);
+    }
+}
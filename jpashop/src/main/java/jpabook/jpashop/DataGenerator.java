@@ -0,0 +1,351 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 대용량 테스트 데이터 생성 (InitDb 대신, jpashop.datagen.enabled=true 일 때만)
+ * - 회원, 상품(Book/Album/Movie), 카테고리, 주문(회원당 N건, 주문/취소, 배송 준비/완료 섞어서)
+ *
+ * em.persist()로 넣으면 영속성 컨텍스트에 엔티티가 계속 쌓여서 느려지고 힙이 터진다.
+ * => StatelessSession(1차 캐시, 더티 체킹, cascade 없음)으로 커넥션/트랜잭션만 쓰고, INSERT는 JDBC batch로 직접 보낸다.
+ * - id는 엔티티에 매핑된 생성기(시퀀스 pooled-lo, Snowflake)를 그대로 써서 애플리케이션이 이후에 넣는 id와 겹치지 않는다.
+ * - 회원 범위를 threads 개로 나눠서 쓰레드마다 StatelessSession(커넥션) 하나씩 병렬로 넣는다.
+ * - batch-size 건마다 executeBatch, 회원 batch-size 명 단위로 커밋
+ *
+ * 테이블/컬럼 이름을 SQL에 직접 쓰기 때문에 엔티티 매핑이 바뀌면 같이 고쳐야 한다.
+ * 주문으로 재고를 차감하지 않는다. (상품 재고는 STOCK 만큼 넉넉하게)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datagen.enabled", havingValue = "true")
+public class DataGenerator implements ApplicationRunner {
+
+    private static final int STOCK = 1_000_000;
+    private static final String[] CITIES = {"서울", "부산", "대전", "광주", "진주"};
+
+    private static final String INSERT_CATEGORY =
+            "insert into category (category_id, name, parent_id, path) values (?, ?, ?, ?)";
+    private static final String INSERT_ITEM =
+            "insert into item (dtype, item_id, name, price, stock_quantity, stock_bucket_count, version," +
+                    " author, isbn, artist, etc, director, actor) values (?, ?, ?, ?, ?, 0, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CATEGORY_ITEM =
+            "insert into category_item (category_item_id, category_id, item_id, item_price) values (?, ?, ?, ?)";
+    private static final String INSERT_MEMBER =
+            "insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_DELIVERY =
+            "insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_ORDER =
+            "insert into orders (order_id, member_id, delivery_id, order_date, status, total_price, version) values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ORDER_ITEM =
+            "insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)";
+
+    private final EntityManagerFactory emf;
+
+    @Value("${jpashop.datagen.threads:4}")
+    private int threads;
+    @Value("${jpashop.datagen.batch-size:1000}")
+    private int batchSize;
+    @Value("${jpashop.datagen.members:10000}")
+    private int members;
+    @Value("${jpashop.datagen.books:1000}")
+    private int books;
+    @Value("${jpashop.datagen.albums:1000}")
+    private int albums;
+    @Value("${jpashop.datagen.movies:1000}")
+    private int movies;
+    @Value("${jpashop.datagen.categories:20}")
+    private int categories;
+    @Value("${jpashop.datagen.categories-per-item:2}")
+    private int categoriesPerItem;
+    @Value("${jpashop.datagen.orders-per-member:10}")
+    private int ordersPerMember;
+    @Value("${jpashop.datagen.max-items-per-order:3}")
+    private int maxItemsPerOrder;
+    @Value("${jpashop.datagen.cancel-ratio:0.1}")
+    private double cancelRatio;
+    @Value("${jpashop.datagen.delivered-ratio:0.5}")
+    private double deliveredRatio;
+    @Value("${jpashop.datagen.order-days:365}")
+    private int orderDays;
+
+    private final Map<String, LongAdder> rowCounts = new ConcurrentSkipListMap<>();   // 테이블별 INSERT 건수
+
+    private SessionFactoryImplementor sessionFactory;
+    private long[] categoryIds;
+    private long[] itemIds;
+    private int[] itemPrices;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generate();
+    }
+
+    public void generate() {
+        sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        rowCounts.clear();
+        long start = System.nanoTime();
+
+        insertCategories();
+        int itemCount = books + albums + movies;
+        itemIds = new long[itemCount];
+        itemPrices = new int[itemCount];
+        inParallel(itemCount, this::insertItems);
+        inParallel(members, this::insertMembersAndOrders);
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long total = rowCounts.values().stream().mapToLong(LongAdder::sum).sum();
+        rowCounts.forEach((table, rows) -> log.info("datagen {}: {} rows", table, rows.sum()));
+        log.info("datagen done: {} rows in {}s ({} rows/sec, threads={})",
+                total, String.format("%.1f", seconds), (long) (total / seconds), threads);
+    }
+
+    /**
+     * 카테고리 (1/5은 최상위, 나머지는 최상위 중 하나의 자식)
+     */
+    private void insertCategories() {
+        categoryIds = new long[categories];
+        int roots = Math.max(1, categories / 5);
+        inChunks(0, categories, (session, batches, from, to) -> {
+            Batch batch = batches.of("category", INSERT_CATEGORY);
+            for (int i = from; i < to; i++) {
+                categoryIds[i] = nextId(session, Category.class);
+                Long parentId = i < roots ? null : categoryIds[ThreadLocalRandom.current().nextInt(roots)];
+                String path = parentId == null ? Category.PATH_SEPARATOR
+                        : Category.PATH_SEPARATOR + parentId + Category.PATH_SEPARATOR;    // 최상위의 자식 (Category.path)
+                batch.add(categoryIds[i], "category-" + i, parentId, path);
+            }
+        });
+    }
+
+    /**
+     * 상품 (books, albums, movies 순서로) + 상품마다 카테고리 categoriesPerItem 개
+     */
+    private void insertItems(SharedSessionContractImplementor session, Batches batches, int from, int to) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Batch items = batches.of("item", INSERT_ITEM);
+        Batch categoryItems = batches.of("category_item", INSERT_CATEGORY_ITEM);
+
+        for (int i = from; i < to; i++) {
+            itemIds[i] = nextId(session, Item.class);
+            itemPrices[i] = (random.nextInt(100) + 1) * 1000;
+            String name = "item-" + i;
+            if (i < books) {
+                items.add("B", itemIds[i], name, itemPrices[i], STOCK, "author-" + i, "isbn-" + i, null, null, null, null);
+            } else if (i < books + albums) {
+                items.add("A", itemIds[i], name, itemPrices[i], STOCK, null, null, "artist-" + i, null, null, null);
+            } else {
+                items.add("M", itemIds[i], name, itemPrices[i], STOCK, null, null, null, null, "director-" + i, "actor-" + i);
+            }
+
+            int start = random.nextInt(categories);
+            for (int c = 0; c < Math.min(categoriesPerItem, categories); c++) {
+                categoryItems.add(nextId(session, CategoryItem.class), categoryIds[(start + c) % categories], itemIds[i], itemPrices[i]);
+            }
+            batches.flushIfFull();
+        }
+    }
+
+    /**
+     * 회원 + 회원마다 주문 ordersPerMember 건 (배송 1 + 주문상품 1 ~ maxItemsPerOrder)
+     * - 주문 시간은 최근 orderDays 일 사이에 흩어 놓는다.
+     */
+    private void insertMembersAndOrders(SharedSessionContractImplementor session, Batches batches, int from, int to) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Batch memberBatch = batches.of("member", INSERT_MEMBER);
+        Batch deliveryBatch = batches.of("delivery", INSERT_DELIVERY);
+        Batch orderBatch = batches.of("orders", INSERT_ORDER);
+        Batch orderItemBatch = batches.of("order_item", INSERT_ORDER_ITEM);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = from; i < to; i++) {
+            long memberId = nextId(session, Member.class);
+            String city = CITIES[i % CITIES.length];
+            String street = "street-" + i;
+            String zipcode = String.format("%05d", i % 100000);
+            memberBatch.add(memberId, "member-" + i, city, street, zipcode);
+
+            for (int o = 0; o < ordersPerMember; o++) {
+                long deliveryId = nextId(session, Delivery.class);
+                long orderId = nextId(session, Order.class);
+                boolean canceled = random.nextDouble() < cancelRatio;
+                DeliveryStatus deliveryStatus = !canceled && random.nextDouble() < deliveredRatio
+                        ? DeliveryStatus.COMP : DeliveryStatus.READY;
+                LocalDateTime orderDate = now.minusSeconds(random.nextLong(orderDays * 86400L));
+
+                int lines = random.nextInt(maxItemsPerOrder) + 1;
+                int[] items = new int[lines];
+                int[] counts = new int[lines];
+                int totalPrice = 0;
+                for (int l = 0; l < lines; l++) {
+                    items[l] = random.nextInt(itemIds.length);
+                    counts[l] = random.nextInt(3) + 1;
+                    totalPrice += itemPrices[items[l]] * counts[l];
+                }
+
+                deliveryBatch.add(deliveryId, city, street, zipcode, deliveryStatus.name());
+                orderBatch.add(orderId, memberId, deliveryId, Timestamp.valueOf(orderDate),
+                        (canceled ? OrderStatus.CANCEL : OrderStatus.ORDER).name(), totalPrice);
+                for (int l = 0; l < lines; l++) {
+                    orderItemBatch.add(nextId(session, OrderItem.class), orderId, itemIds[items[l]], itemPrices[items[l]], counts[l]);
+                }
+            }
+            batches.flushIfFull();
+        }
+    }
+
+    /**
+     * [0, total)을 threads 개 구간으로 나눠서 병렬로 실행
+     */
+    private void inParallel(int total, ChunkWriter writer) {
+        if (total == 0) {
+            return;
+        }
+        int workers = Math.max(1, Math.min(threads, total));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int share = (total + workers - 1) / workers;
+            for (int from = 0; from < total; from += share) {
+                int start = from;
+                int end = Math.min(from + share, total);
+                futures.add(executor.submit(() -> inChunks(start, end, writer)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("데이터 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("데이터 생성에 실패했습니다.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * StatelessSession 하나로 [from, to)를 batchSize 건씩 나눠서 트랜잭션마다 커밋
+     */
+    private void inChunks(int from, int to, ChunkWriter writer) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            for (int start = from; start < to; start += batchSize) {
+                int chunkStart = start;
+                int chunkEnd = Math.min(start + batchSize, to);
+                Transaction tx = session.beginTransaction();
+                session.doWork(connection -> {
+                    try (Batches batches = new Batches(connection)) {
+                        writer.write((SharedSessionContractImplementor) session, batches, chunkStart, chunkEnd);
+                        batches.flush();
+                    }
+                });
+                tx.commit();
+            }
+        }
+    }
+
+    private long nextId(SharedSessionContractImplementor session, Class<?> entityClass) {
+        IdentifierGenerator generator = sessionFactory.getMetamodel().entityPersister(entityClass).getIdentifierGenerator();
+        return (Long) generator.generate(session, null);
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(SharedSessionContractImplementor session, Batches batches, int from, int to) throws SQLException;
+    }
+
+    /**
+     * 테이블별 JDBC batch 묶음
+     * - FK 때문에 등록한 순서대로(부모 테이블 먼저) executeBatch 한다.
+     * - 한 테이블이라도 batchSize 건이 쌓이면 전부 보낸다.
+     */
+    private class Batches implements AutoCloseable {
+
+        private final Connection connection;
+        private final List<Batch> batches = new ArrayList<>();
+
+        Batches(Connection connection) {
+            this.connection = connection;
+        }
+
+        Batch of(String table, String sql) throws SQLException {
+            Batch batch = new Batch(table, connection.prepareStatement(sql));
+            batches.add(batch);
+            return batch;
+        }
+
+        void flushIfFull() throws SQLException {
+            for (Batch batch : batches) {
+                if (batch.pending >= batchSize) {
+                    flush();
+                    return;
+                }
+            }
+        }
+
+        void flush() throws SQLException {
+            for (Batch batch : batches) {
+                batch.flush();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (Batch batch : batches) {
+                batch.statement.close();
+            }
+        }
+    }
+
+    private class Batch {
+
+        private final String table;
+        private final PreparedStatement statement;
+        private int pending;
+
+        Batch(String table, PreparedStatement statement) {
+            this.table = table;
+            this.statement = statement;
+        }
+
+        void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            pending++;
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            statement.executeBatch();
+            rowCounts.computeIfAbsent(table, t -> new LongAdder()).add(pending);
+            pending = 0;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package jpabook.jpashop;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,9 +18,12 @@ import javax.persistence.EntityManager;
  * * userB
  *  SPRING1 BOOK
  *  SPRING2 BOOK
+ *
+ * 대용량 데이터가 필요하면 jpashop.datagen.enabled=true => DataGenerator가 대신 데이터를 넣는다.
  */
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.datagen.enabled", havingValue = "false", matchIfMissing = true)
 public class InitDb {
 
 
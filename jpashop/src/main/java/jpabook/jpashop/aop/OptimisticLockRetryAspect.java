@@ -0,0 +1,71 @@
+package jpabook.jpashop.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @RetryOnOptimisticLock 메서드 재시도
+ * - 트랜잭션 AOP(@Transactional)보다 바깥에서 실행되어야 매번 새 트랜잭션으로 다시 실행된다. => @Order로 먼저 실행
+ * - 재시도 간격은 지수 백오프 + 지터(랜덤) => 충돌한 요청들이 같은 순간에 다시 몰리지 않도록
+ * - 비관적 락 없이도 경합 상황에서 요청이 실패하지 않고 처리된다.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class OptimisticLockRetryAspect {
+
+    private final Counter conflicts = Metrics.counter("jpashop.optimistic.lock.conflicts");
+    private final Counter retries = Metrics.counter("jpashop.optimistic.lock.retries");
+    private final Counter exhausted = Metrics.counter("jpashop.optimistic.lock.exhausted");
+
+    @Value("${jpashop.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${jpashop.retry.backoff-millis:20}")
+    private long backoffMillis;
+
+    @Value("${jpashop.retry.max-backoff-millis:500}")
+    private long maxBackoffMillis;
+
+    @Around("@annotation(jpabook.jpashop.aop.RetryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                log.debug("optimistic lock conflict, retry {}/{} - {}", attempt, maxAttempts, joinPoint.getSignature().toShortString());
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 낙관적 락 충돌(OptimisticLockException)이 나면 메서드를 트랜잭션째로 다시 실행한다.
+ * - @Transactional 메서드에 같이 붙인다. (재시도는 트랜잭션 바깥에서 감싼다)
+ * - 다시 실행해도 안전한(멱등한) 서비스 메서드에만 붙여야 한다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.BulkSizeExceededException;
+import jpabook.jpashop.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.validation.ConstraintViolationException;
+
+/**
+ * 클라이언트 입력이 잘못된 경우 500 대신 400으로 응답한다.
+ */
+@Slf4j
+@RestControllerAdvice
+public class ApiExceptionAdvice {
+
+    /**
+     * 잘못된 커서 - 주문 목록(/api/v4~v6, /orders), 카테고리 상품(/api/v2/categories/{id}/items)
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResult invalidCursor(InvalidCursorException e) {
+        log.debug("invalid cursor", e);
+        return new ErrorResult("INVALID_CURSOR", e.getMessage());
+    }
+
+    /**
+     * 일괄 등록 건수 초과 - /api/v2/members/bulk
+     */
+    @ExceptionHandler(BulkSizeExceededException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResult bulkSizeExceeded(BulkSizeExceededException e) {
+        log.debug("bulk size exceeded", e);
+        return new ErrorResult("BULK_SIZE_EXCEEDED", e.getMessage());
+    }
+
+    /**
+     * @Validated 컨트롤러의 파라미터 검증 실패 - 일괄 등록의 null 요소 등
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResult constraintViolation(ConstraintViolationException e) {
+        log.debug("constraint violation", e);
+        return new ErrorResult("INVALID_REQUEST", e.getMessage());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ErrorResult {
+        private String code;
+        private String message;
+    }
+}
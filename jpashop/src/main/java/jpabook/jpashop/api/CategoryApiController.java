@@ -0,0 +1,97 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.cache.CategoryTree;
+import jpabook.jpashop.cache.CategoryTreeCache;
+import jpabook.jpashop.dto.CategoryItemDto;
+import jpabook.jpashop.repository.CategoryItemSearch;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.service.CategoryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private final CategoryService categoryService;
+    private final CategoryTreeCache categoryTreeCache;
+
+    /**
+     * 카테고리 메뉴 (전체 트리) - 스냅샷에서 바로 => DB 조회 없음
+     */
+    @GetMapping("/api/v1/categories")
+    public Result<List<CategoryTree.Node>> categories() {
+        return new Result<>(categoryTreeCache.get().getRoots());
+    }
+
+    @PostMapping("/api/v1/categories")
+    public CreateCategoryResponse createCategory(@RequestBody @Valid CreateCategoryRequest request) {
+        Long id = categoryService.addCategory(request.getName(), request.getParentId());
+        return new CreateCategoryResponse(id);
+    }
+
+    /**
+     * 카테고리와 하위 카테고리의 상품 (하위 트리가 아무리 깊어도 쿼리 2번: 카테고리 1번 + 상품 1번)
+     */
+    @GetMapping("/api/v1/categories/{id}/items")
+    public Result<List<CategoryItemDto>> categoryItems(@PathVariable Long id) {
+        List<CategoryItemDto> items = categoryService.findItemsInSubtree(id).stream()
+                .map(item -> new CategoryItemDto(item.getId(), item.getName(), item.getPrice()))
+                .collect(Collectors.toList());
+        return new Result<>(items);
+    }
+
+    /**
+     * 카테고리 상품 (한 카테고리, 정렬 + 커서 페이징)
+     * - sort: ITEM_ID(등록순), PRICE(가격 낮은 순)
+     * - 요청한 페이지 만큼만 읽는다. (category_item 인덱스 범위 + 그 페이지 상품만 조인)
+     */
+    @GetMapping("/api/v2/categories/{id}/items")
+    public SliceResult<List<CategoryItemDto>> categoryItemsV2(@PathVariable Long id, CategoryItemSearch search) {
+        CursorSlice<CategoryItemDto> items = categoryService.findItemPage(id, search);
+        return new SliceResult<>(items.getContent(), items.getNextCursor(), items.hasNext());
+    }
+
+    /**
+     * 카테고리 상품 수 + 바로 아래 카테고리별 상품 수 (엔티티를 읽지 않는 count 쿼리 2번)
+     */
+    @GetMapping("/api/v2/categories/{id}/items/count")
+    public ItemCountResponse categoryItemCount(@PathVariable Long id) {
+        return new ItemCountResponse(id, categoryService.countItems(id), categoryService.countItemsOfChildren(id));
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private T data;
+    }
+
+    @Data
+    static class CreateCategoryRequest {
+        @NotEmpty
+        private String name;
+        private Long parentId;  // 최상위면 없음
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse {
+        private Long id;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemCountResponse {
+        private Long categoryId;
+        private long count;
+        private Map<Long, Long> children;   // 자식 카테고리 id -> 상품 수
+    }
+}
@@ -1,18 +1,22 @@
 package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.dto.MemberJoinResult;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
+@Validated  // 일괄 등록의 List 요소 검증 (@RequestBody List에는 @Valid가 적용되지 않는다)
 public class MemberApiController {
 
     private final MemberService memberService;
@@ -99,6 +103,27 @@ public class MemberApiController {
          */
     }
 
+    /**
+     * 회원 일괄 등록
+     * - 요청: CreateMemberRequest 배열, 응답: 요청 순서대로 한 줄씩 결과 (index, name, status, id)
+     * - 중복/빈 이름이 있어도 나머지는 등록된다. => 실패한 줄만 status로 알려준다.
+     * - 한 건씩 /api/v2/members 를 부르는 것보다 중복 조회는 IN 쿼리로, INSERT는 JDBC batch로 묶여서 나간다.
+     * - null 요소나 jpashop.member.bulk.max-size 초과는 요청 자체가 잘못된 것 => 400 (ApiExceptionAdvice)
+     */
+    @PostMapping("/api/v2/members/bulk")
+    public Result<List<MemberJoinResult>> saveMembersV2(@RequestBody @NotNull List<@NotNull CreateMemberRequest> requests) {
+
+        List<Member> members = requests.stream()
+                .map(request -> {
+                    Member member = new Member();
+                    member.setName(request.getName());
+                    return member;
+                })
+                .collect(Collectors.toList());
+
+        return new Result<>(memberService.joinAll(members));
+    }
+
     /**
      * PUT은 멱등성을 가진다. (같은 것을 여러번 호출해도 결과가 똑같다.)
      * PUT은 전체 업데이트를 할 때 사용한다. 부분 업데이트를 하려면 PATCH를 사용하거나 POST를 사욯아는 것이 맞다.
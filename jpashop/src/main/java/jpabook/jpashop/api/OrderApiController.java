@@ -0,0 +1,111 @@
+package jpabook.jpashop.api;
+
+import static java.util.stream.Collectors.toList;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.dto.OrderLineDto;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 컬렉션 조회 (OneToMany)
+ * Order -> OrderItems -> Item
+ */
+@RestController
+@RequiredArgsConstructor
+public class OrderApiController {
+
+    private final OrderRepository orderRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderService orderService;
+
+    /**
+     * 주문 + 주문상품 조회 (페이징 가능)
+     * - 1. 루트 조회: 주문 한 페이지 + ToOne(member, delivery)은 fetch join (쿼리 1번)
+     * - 2. 컬렉션 조회: 그 페이지 주문들의 주문상품 + 상품을 IN 절로 한 번에 (쿼리 1번)
+     * => 페이지 크기와 상관없이 쿼리 2번
+     */
+    @GetMapping("/api/v1/orders")
+    public SliceResult<List<OrderDto>> ordersV1(OrderSearch orderSearch) {
+
+        CursorSlice<Order> orders = orderRepository.findAllWithMemberDelivery(orderSearch);
+
+        List<Long> orderIds = orders.getContent().stream()
+            .map(Order::getId)
+            .collect(toList());
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderQueryRepository.findOrderItemMap(orderIds);
+
+        List<OrderDto> result = orders.getContent().stream()
+            .map(o -> new OrderDto(o, orderItemMap.getOrDefault(o.getId(), Collections.emptyList())))
+            .collect(toList());
+
+        return new SliceResult<>(result, orders.getNextCursor(), orders.hasNext());
+    }
+
+    /**
+     * 장바구니 주문 (여러 상품을 주문 하나로)
+     */
+    @PostMapping("/api/v1/orders")
+    public CheckoutResponse checkoutV1(@RequestBody @Valid CheckoutRequest request) {
+
+        Long orderId = orderService.checkout(request.getMemberId(), request.getLines());
+        return new CheckoutResponse(orderId);
+    }
+
+    @Data
+    static class CheckoutRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        private List<@NotNull @Valid OrderLineDto> lines;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CheckoutResponse {
+        @JsonSerialize(using = ToStringSerializer.class)
+        private Long orderId;
+    }
+
+    @Data
+    static class OrderDto {
+        @JsonSerialize(using = ToStringSerializer.class)
+        private Long orderId;
+        private String name;
+        private LocalDateTime orderDate;
+        private OrderStatus orderStatus;
+        private Address address;
+        private List<OrderItemQueryDto> orderItems;    // 엔티티(OrderItem)를 그대로 노출하지 않는다.
+
+        public OrderDto(Order order, List<OrderItemQueryDto> orderItems) {
+            this.orderId = order.getId();
+            this.name = order.getMember().getName();    // fetch join으로 이미 조회됨
+            this.orderDate = order.getOrderDate();
+            this.orderStatus = order.getStatus();
+            this.address = order.getDelivery().getAddress();
+            this.orderItems = orderItems;
+        }
+    }
+}
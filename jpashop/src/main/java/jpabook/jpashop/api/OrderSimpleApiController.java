@@ -2,19 +2,30 @@ package jpabook.jpashop.api;
 
 import static java.util.stream.Collectors.toList;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import jpabook.jpashop.cache.OrderSearchCache;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.CursorSlice;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * "xToOne" 관계 (ManyToOne, OneToOne)
@@ -28,6 +39,11 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderSearchCache orderSearchCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${jpashop.export.fetch-size:1000}")
+    private int exportFetchSize;
 
     /**
      * 1. 엔티티를 직접 노출
@@ -36,7 +52,7 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
+        List<Order> all = orderRepository.findAllByString(legacySearch());
         // 1. 무한 루프에 빠진다!!
         // Order에 가서도 Member가 있고, Member에 가서도 Order가 있고, Order에 가서도 ...
         // -> '양방향 연관관계'가 있으면 둘 중 하나를 '@JsonIgnore' 해줘야 한다.
@@ -76,7 +92,7 @@ public class OrderSimpleApiController {
         // 이 것이 'N+1' 문제다. (1+N 문제라고 해야할 것 같은 느낌)
         // 1 + 회원 N + 배송 N (1+2+2)
          // 1. 처음에 'N개'의 orders를 가져오기 위해 쿼리를 날림
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+        List<Order> orders = orderRepository.findAllByString(legacySearch());
         
         // [2번 돈다.]
         // 2. 첫번째 쿼리의 결과로 'N번' 만큼 추가 쿼리가 실행된다.
@@ -112,20 +128,86 @@ public class OrderSimpleApiController {
      * - 쿼리 1번 호출
      * - select 절에서 원하는 데이터만 선택해서 조회
      * - V3와 V4는 트레이드 오프가 있다.
+     * - 검색 조건/페이징 없이 전체를 돌려주는 API라 검색 결과 캐시를 쓰지 않는다. => 대시보드는 V6 (OrderSearchCache)
      */
     @GetMapping("/api/v4/simpmle-orders")
     public List<OrderSimpleQueryDto> orderV4() {
         return orderSimpleQueryRepository.findOrderDtos();
     }
 
+    /**
+     * 4-1. JPA에서 DTO로 바로 조회 + 스트리밍 응답 (전체 주문 내보내기)
+     * - V4는 결과를 List로 다 만든 다음에 JSON으로 바꾼다. => 주문 수 만큼 힙을 쓴다.
+     * - scroll로 한 건 읽을 때마다 바로 JsonGenerator로 응답에 써버린다. => 건수와 상관없이 힙 사용량이 일정
+     * - StreamingResponseBody는 별도 쓰레드에서 실행되므로 트랜잭션은 repository 메서드에서 연다.
+     */
+    @GetMapping(value = "/api/v4/simpmle-orders/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody orderV4Stream() {
+
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                orderSimpleQueryRepository.streamOrderDtos(exportFetchSize, dto -> {
+                    try {
+                        generator.writeObject(dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * 5. 커서 기반 페이징 (fetch join + keyset)
+     * - 쿼리 1번 호출, 한 페이지(size)만큼만 조회
+     * - cursor 파라미터로 이전 응답의 nextCursor를 넘기면 다음 페이지를 조회한다.
+     * - OFFSET을 쓰지 않기 때문에 뒤 페이지로 가도 조회 속도가 일정하다.
+     */
+    @GetMapping("/api/v5/simpmle-orders")
+    public SliceResult<List<SimpleOrderDto>> orderV5(OrderSearch orderSearch) {
+
+        CursorSlice<Order> orders = orderRepository.findAllWithMemberDelivery(orderSearch);
+        List<SimpleOrderDto> result = orders.getContent().stream()
+            .map(SimpleOrderDto::new)
+            .collect(toList());
+
+        return new SliceResult<>(result, orders.getNextCursor(), orders.hasNext());
+    }
+
+    /**
+     * 6. DTO 조회 + 커서 페이징 + 주문 금액 검색/정렬
+     * - 쿼리 1번 호출, order_item은 읽지 않는다. (orders.total_price 역정규화 컬럼)
+     * - ex) ?sort=TOTAL_PRICE&minTotalPrice=50000
+     * - 대시보드가 같은 검색 조건(orderStatus, memberName)으로 계속 조회한다. => 검색 결과 캐시 (OrderSearchCache)
+     */
+    @GetMapping("/api/v6/simpmle-orders")
+    public SliceResult<List<OrderSimpleQueryDto>> orderV6(OrderSearch orderSearch) {
+
+        CursorSlice<OrderSimpleQueryDto> orders = orderSearchCache.findOrderDtos(orderSearch);
+        return new SliceResult<>(orders.getContent(), orders.getNextCursor(), orders.hasNext());
+    }
+
+
+    /**
+     * v1, v2는 커서 페이징 전부터 있던 API => 예전처럼 커서 없이 최대 1000건 (OrderSearch.MAX_SIZE)
+     */
+    private static OrderSearch legacySearch() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setSize(OrderSearch.MAX_SIZE);
+        return orderSearch;
+    }
 
     @Data
     static class SimpleOrderDto {
+        @JsonSerialize(using = ToStringSerializer.class)
         private Long orderId;
         private String name;
         private LocalDateTime orderDate;
         private OrderStatus orderStatus;
         private Address address; // Address는 엔티티가 아닌 Value Object다. 단순 Address라는 타입을 정했다고 생각하면 된다.
+        private int totalPrice;
 
         // DTO가 이렇게 entity를 parameter로 받는 것은 크게 문제가 되지 않는다.
         // 별로 중요하지 않는데서 중요한 entity에 의존하는 것이기 때문
@@ -136,6 +218,7 @@ public class OrderSimpleApiController {
             this.orderDate = order.getOrderDate();
             this.orderStatus = order.getStatus();
             this.address =  order.getDelivery().getAddress();   // LAZY 초기화
+            this.totalPrice = order.getTotalPrice();    // 역정규화 컬럼 (orderItems LAZY 로딩 X)
         }
     }
 
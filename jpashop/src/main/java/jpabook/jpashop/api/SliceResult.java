@@ -0,0 +1,16 @@
+package jpabook.jpashop.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 커서 기반 페이징 응답
+ * - Result 클래스처럼 컬렉션을 감싸고, 다음 페이지를 조회할 커서를 같이 내려준다.
+ */
+@Data
+@AllArgsConstructor
+public class SliceResult<T> {
+    private T data;
+    private String nextCursor;
+    private boolean hasNext;
+}
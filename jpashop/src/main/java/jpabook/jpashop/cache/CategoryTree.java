@@ -0,0 +1,121 @@
+package jpabook.jpashop.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 트리 전체의 불변 스냅샷 (CategoryTreeCache가 만들어서 통째로 바꿔 끼운다)
+ * - 만든 다음에는 바뀌지 않기 때문에 여러 쓰레드가 락 없이 읽는다.
+ * - 메뉴, 하위 트리 id, 조상 조회에 DB를 거치지 않는다.
+ */
+public final class CategoryTree {
+
+    public static final CategoryTree EMPTY = new CategoryTree(0, Collections.emptyMap(), Collections.emptyList());
+
+    @Getter
+    private final long version;
+    private final Map<Long, Node> nodes;
+    @Getter
+    private final List<Node> roots;
+
+    private CategoryTree(long version, Map<Long, Node> nodes, List<Node> roots) {
+        this.version = version;
+        this.nodes = nodes;
+        this.roots = roots;
+    }
+
+    /**
+     * @param rows [id, name, parentId, path] - 부모가 자식보다 먼저 나와야 한다. (CategoryRepository.findAllNodes: path 길이 순)
+     */
+    static CategoryTree of(long version, List<Object[]> rows) {
+        Map<Long, Node> nodes = new HashMap<>(rows.size() * 2);
+        List<Node> roots = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            Long parentId = (Long) row[2];
+            Node parent = parentId == null ? null : nodes.get(parentId);
+            Node node = new Node(id, (String) row[1], parentId, parent == null ? 0 : parent.depth + 1);
+            nodes.put(id, node);
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.children.add(node);
+            }
+        }
+        nodes.values().forEach(Node::freeze);
+        return new CategoryTree(version, Collections.unmodifiableMap(nodes), Collections.unmodifiableList(roots));
+    }
+
+    public Node get(Long id) {
+        return nodes.get(id);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 자기 자신 + 하위 카테고리 id 전부 (없는 id면 빈 목록)
+     */
+    public List<Long> subtreeIds(Long id) {
+        Node root = nodes.get(id);
+        if (root == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            ids.add(node.id);
+            node.children.forEach(stack::push);
+        }
+        return ids;
+    }
+
+    /**
+     * 루트부터 부모까지
+     */
+    public List<Node> ancestors(Long id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<Node> ancestors = new ArrayList<>(node.depth);
+        for (Long parentId = node.parentId; parentId != null; parentId = nodes.get(parentId).parentId) {
+            ancestors.add(nodes.get(parentId));
+        }
+        Collections.reverse(ancestors);
+        return ancestors;
+    }
+
+    @Getter
+    public static final class Node {
+
+        private final Long id;
+        private final String name;
+        @JsonIgnore
+        private final Long parentId;
+        private final int depth;
+        private List<Node> children = new ArrayList<>();
+
+        private Node(Long id, String name, Long parentId, int depth) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.depth = depth;
+        }
+
+        private void freeze() {
+            children = Collections.unmodifiableList(children);
+        }
+    }
+}
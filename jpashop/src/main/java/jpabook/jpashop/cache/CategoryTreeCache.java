@@ -0,0 +1,54 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.service.CategoryChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 카테고리 트리 스냅샷 (CategoryTree) 보관
+ * - 애플리케이션 시작 시, 카테고리 추가(CategoryChangedEvent)가 커밋될 때마다 전체 트리를 쿼리 1번으로 다시 읽어서 통째로 바꿔 끼운다.
+ *      카테고리는 수가 적고 거의 바뀌지 않기 때문에 부분 갱신보다 다시 읽는 게 단순하고 싸다.
+ * - 읽는 쪽은 get()으로 스냅샷 하나를 잡고 쓴다. => 읽는 도중에 트리가 바뀌어도 반쯤 바뀐 트리를 보지 않는다.
+ *
+ * 동시에 두 번 다시 읽으면 늦게 시작한 쪽이 먼저 끝날 수 있다. => 버전이 더 큰 스냅샷만 끼운다.
+ * 다른 서버에서 추가한 카테고리는 그 서버가 알리지 않기 때문에 재시작 전까지 보이지 않는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<CategoryTree> tree = new AtomicReference<>(CategoryTree.EMPTY);
+
+    public CategoryTree get() {
+        return tree.get();
+    }
+
+    /**
+     * InitDb, DataGenerator가 데이터를 넣은 다음에 만든다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long version = versions.incrementAndGet();
+        CategoryTree built = CategoryTree.of(version, categoryRepository.findAllNodes());
+        CategoryTree installed = tree.updateAndGet(current -> current.getVersion() < version ? built : current);
+        log.debug("category tree rebuilt: {} categories (version {}, installed {})",
+                built.size(), version, installed.getVersion());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+}
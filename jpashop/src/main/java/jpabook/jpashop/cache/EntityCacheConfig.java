@@ -0,0 +1,85 @@
+package jpabook.jpashop.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 하이버네이트 2차 캐시 (엔티티 캐시) - JCache + Caffeine, 서버 메모리에 둔다.
+ * - 캐시하는 엔티티: 상품(Item, Book/Album/Movie 포함), 회원(Member) => 주문할 때마다 id로 조회하지만 거의 바뀌지 않는다.
+ * - 영역(region)마다 최대 maximum-size 건, 저장하고 ttl-seconds 가 지나면 버린다. (다른 서버에서 바꾼 값도 이 시간 안에는 반영된다)
+ * - READ_WRITE 전략: 엔티티를 변경 감지로 UPDATE 하면 하이버네이트가 커밋할 때까지 캐시 엔트리를 잠그고, 커밋 후에 새 값으로 바꾼다.
+ *      재고처럼 SQL로 직접 바꾸는 값은 EntityCacheLock으로 같은 방식으로 잠근다.
+ * - 적중/실패 수: cache.gets{cache=item|member, result=hit|miss} 메트릭
+ *
+ * application.yml 대신 여기서 하이버네이트 설정을 넣는다. => 테스트(src/test/resources/application.yml)에서도 똑같이 동작
+ */
+@Slf4j
+@Configuration
+public class EntityCacheConfig implements HibernatePropertiesCustomizer {
+
+    public static final String ITEM_REGION = "item";
+    public static final String MEMBER_REGION = "member";
+
+    private static final String[] REGIONS = {ITEM_REGION, MEMBER_REGION};
+
+    @Value("${jpashop.cache.entity.enabled:true}")
+    private boolean enabled;
+    @Value("${jpashop.cache.entity.maximum-size:10000}")
+    private long maximumSize;
+    @Value("${jpashop.cache.entity.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (!enabled) {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            return;
+        }
+        hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, createCacheManager());
+        hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");   // 영역을 빠뜨리면 무제한 캐시가 생기지 않도록
+    }
+
+    /**
+     * 애플리케이션 컨텍스트마다 CacheManager를 따로 만든다.
+     * - 테스트에서 컨텍스트가 여러 개 떠 있어도 (DB가 다르니) 캐시를 섞어 쓰지 않는다.
+     * - 하이버네이트가 SessionFactory를 닫을 때 CacheManager도 닫는다.
+     */
+    private CacheManager createCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("jpashop-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+            configuration.setStoreByValue(false);   // 하이버네이트 캐시 엔트리는 불변 => 직렬화해서 복사할 필요 없음
+            configuration.setStatisticsEnabled(true);
+
+            Cache<Object, Object> cache = cacheManager.createCache(region, configuration);
+            JCacheMetrics.monitor(Metrics.globalRegistry, cache);
+        }
+        log.info("second-level cache regions {}: maximum-size={}, ttl={}s", REGIONS, maximumSize, ttlSeconds);
+        return cacheManager;
+    }
+}
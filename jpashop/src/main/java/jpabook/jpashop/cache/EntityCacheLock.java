@@ -0,0 +1,41 @@
+package jpabook.jpashop.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+
+/**
+ * SQL로 직접 바꾸는 엔티티의 2차 캐시 엔트리 잠금
+ * - 하이버네이트는 변경 감지로 UPDATE 할 때만 캐시 엔트리를 잠근다. 네이티브 UPDATE(재고 등)는 여기서 같은 방식으로 잠근다.
+ * - 하이버네이트 캐시 SPI(EntityDataAccess, ActionQueue)는 이 클래스 밖으로 내보내지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheLock {
+
+    private final EntityManager em;
+
+    /**
+     * 현재 트랜잭션이 끝날 때까지 엔트리를 잠근다.
+     * - 잠겨 있는 동안 다른 트랜잭션은 캐시를 건너뛰고 DB에서 읽는다.
+     * - 커밋/롤백 후에 풀리고, 풀리기 전에 시작한 트랜잭션이 읽은 옛날 값은 캐시에 들어가지 못한다.
+     */
+    public void lockUntilCompletion(Class<?> entityClass, Object id, Object version) {
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        if (!persister.canWriteToCache()) {
+            return; // 2차 캐시를 끈 경우 (jpashop.cache.entity.enabled=false)
+        }
+        EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+        Object cacheKey = cacheAccess.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock lock = cacheAccess.lockItem(session, cacheKey, version);
+        session.getActionQueue().registerProcess(
+                (success, completedSession) -> cacheAccess.unlockItem(completedSession, cacheKey, lock));
+    }
+}
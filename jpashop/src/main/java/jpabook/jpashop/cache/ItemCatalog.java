@@ -0,0 +1,175 @@
+package jpabook.jpashop.cache;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 상품 카탈로그 불변 스냅샷 (ItemCatalogCache가 만들어서 통째로 바꿔 끼운다)
+ * - 상품 목록 화면, 주문 화면의 상품 선택에 필요한 값만 컬럼별 배열로 들고 있다. (struct of arrays)
+ *      ids[i], names[i], prices[i], stocks[i], dtypes[i] 가 상품 하나, id 오름차순
+ * - 엔티티 수천 개 대신 배열 5개 => 메모리가 작고, 읽을 때 영속성 컨텍스트/DB를 거치지 않는다.
+ * - 바꿀 때는 배열을 새로 만든다. (copy-on-write) => 읽는 쪽은 락 없이 읽고, 읽는 도중에 값이 바뀌지 않는다.
+ */
+public final class ItemCatalog {
+
+    public static final ItemCatalog EMPTY = new ItemCatalog(new long[0], new String[0], new int[0], new int[0], new char[0]);
+
+    private final long[] ids;
+    private final String[] names;
+    private final int[] prices;
+    private final int[] stocks;
+    private final char[] dtypes;
+    private final List<Entry> entries = new Entries();
+
+    private ItemCatalog(long[] ids, String[] names, int[] prices, int[] stocks, char[] dtypes) {
+        this.ids = ids;
+        this.names = names;
+        this.prices = prices;
+        this.stocks = stocks;
+        this.dtypes = dtypes;
+    }
+
+    /**
+     * @param rows [id, name, price, 재고, dtype] - id 오름차순 (ItemRepository.findCatalogRows)
+     */
+    static ItemCatalog of(List<Object[]> rows) {
+        int size = rows.size();
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        int[] prices = new int[size];
+        int[] stocks = new int[size];
+        char[] dtypes = new char[size];
+        for (int i = 0; i < size; i++) {
+            Object[] row = rows.get(i);
+            ids[i] = (Long) row[0];
+            names[i] = (String) row[1];
+            prices[i] = (Integer) row[2];
+            stocks[i] = (Integer) row[3];
+            dtypes[i] = (Character) row[4];
+        }
+        return new ItemCatalog(ids, names, prices, stocks, dtypes);
+    }
+
+    /**
+     * 바뀐 상품만 반영한 새 스냅샷 (이 스냅샷은 그대로)
+     * @param changedIds 다시 읽은 상품 id - rows에 없으면 지워진 상품
+     * @param rows       다시 읽은 row - id 오름차순
+     */
+    ItemCatalog with(Collection<Long> changedIds, List<Object[]> rows) {
+        ItemCatalog changed = of(rows);
+        Set<Long> removed = new TreeSet<>(changedIds);
+        for (long id : changed.ids) {
+            removed.remove(id);
+        }
+
+        int capacity = ids.length + changed.ids.length;
+        long[] newIds = new long[capacity];
+        String[] newNames = new String[capacity];
+        int[] newPrices = new int[capacity];
+        int[] newStocks = new int[capacity];
+        char[] newDtypes = new char[capacity];
+
+        // 둘 다 id 오름차순 => 한 번씩 훑으면서 합친다. (같은 id면 바뀐 값)
+        int i = 0, j = 0, n = 0;
+        while (i < ids.length || j < changed.ids.length) {
+            ItemCatalog from;
+            int index;
+            if (j == changed.ids.length || (i < ids.length && ids[i] < changed.ids[j])) {
+                from = this;
+                index = i++;
+                if (removed.contains(ids[index])) {
+                    continue;
+                }
+            } else {
+                if (i < ids.length && ids[i] == changed.ids[j]) {
+                    i++;
+                }
+                from = changed;
+                index = j++;
+            }
+            newIds[n] = from.ids[index];
+            newNames[n] = from.names[index];
+            newPrices[n] = from.prices[index];
+            newStocks[n] = from.stocks[index];
+            newDtypes[n] = from.dtypes[index];
+            n++;
+        }
+        return new ItemCatalog(Arrays.copyOf(newIds, n), Arrays.copyOf(newNames, n),
+                Arrays.copyOf(newPrices, n), Arrays.copyOf(newStocks, n), Arrays.copyOf(newDtypes, n));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * id 오름차순 목록 (템플릿용 읽기 전용 뷰, 배열을 복사하지 않는다)
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * 없으면 null
+     */
+    public Entry find(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? null : new Entry(index);
+    }
+
+    private final class Entries extends AbstractList<Entry> implements RandomAccess {
+
+        @Override
+        public Entry get(int index) {
+            if (index < 0 || index >= ids.length) {
+                throw new IndexOutOfBoundsException("index=" + index + ", size=" + ids.length);
+            }
+            return new Entry(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * 상품 하나 (배열 위치만 들고 있는 뷰)
+     */
+    public final class Entry {
+
+        private final int index;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+
+        public Long getId() {
+            return ids[index];
+        }
+
+        public String getName() {
+            return names[index];
+        }
+
+        public int getPrice() {
+            return prices[index];
+        }
+
+        public int getStockQuantity() {
+            return stocks[index];
+        }
+
+        /**
+         * B: Book, A: Album, M: Movie (Item의 @DiscriminatorValue)
+         */
+        public char getDtype() {
+            return dtypes[index];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package jpabook.jpashop.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.service.ItemChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 상품 카탈로그 스냅샷 (ItemCatalog) 보관 - /items 상품 목록, /order 주문 화면
+ * - 애플리케이션 시작 시 전체를 한 번 읽고, 이후로는 바뀐 상품(ItemChangedEvent)만 다시 읽어서 새 스냅샷으로 바꿔 끼운다.
+ * - 읽는 쪽은 get()으로 스냅샷 하나를 잡고 쓴다. (volatile 읽기 1번, DB/영속성 컨텍스트를 거치지 않음)
+ *
+ * 스냅샷 갱신은 별도 쓰레드(item-catalog-refresh) 하나가 한다.
+ * - 커밋한 요청 쓰레드는 바뀐 상품 id만 pending에 넣고 바로 돌아간다. => 주문/장바구니 주문/주문 접수 배치가 카탈로그 조회를 기다리지 않는다.
+ * - 동시에 커밋된 변경은 pending에 모아 두고, 갱신 중인 쓰레드가 끝나기 전에 한꺼번에 다시 읽는다. => 주문이 몰려도 DB 조회가 몰리지 않는다.
+ * - 그래서 커밋 직후 잠깐은 이전 스냅샷이 보일 수 있다.
+ * - DB를 읽는 순서 = 스냅샷을 끼우는 순서 => 늦게 읽은(더 새로운) 값이 항상 마지막에 들어간다.
+ *
+ * 다른 서버에서 바꾼 상품은 알 수 없기 때문에 재시작 전까지 반영되지 않는다. (재고는 화면 표시용 => 주문할 때는 DB 재고로 검사)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemCatalogCache {
+
+    private final ItemRepository itemRepository;
+
+    private volatile ItemCatalog catalog = ItemCatalog.EMPTY;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "item-catalog-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("jpashop.catalog.items", this, cache -> cache.get().size())
+                .description("상품 카탈로그 스냅샷의 상품 수")
+                .register(Metrics.globalRegistry);
+    }
+
+    public ItemCatalog get() {
+        return catalog;
+    }
+
+    /**
+     * InitDb, DataGenerator가 데이터를 넣은 다음에 전체를 다시 읽는다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            pending.clear();    // 전체를 지금 읽기 때문에 그 전에 쌓인 변경은 필요 없다.
+            long start = System.nanoTime();
+            catalog = ItemCatalog.of(itemRepository.findCatalogRows(null));
+            log.info("item catalog rebuilt: {} items in {}ms", catalog.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            refreshLock.unlock();
+        }
+        refresher.execute(this::drain); // 다시 읽는 동안 커밋된 변경
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemChanged(ItemChangedEvent event) {
+        pending.addAll(event.getItemIds());
+        refresher.execute(this::drain);
+    }
+
+    /**
+     * 지금까지 커밋된 변경이 스냅샷에 반영될 때까지 기다린다. (테스트용)
+     */
+    void awaitRefresh() throws Exception {
+        refresher.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 락을 잡은 쓰레드가 pending이 빌 때까지 반영한다.
+     * 락을 못 잡으면 그냥 돌아간다. => 락을 들고 있는 쓰레드가 풀고 나서 pending을 다시 확인하기 때문에 놓치지 않는다.
+     */
+    private void drain() {
+        while (!pending.isEmpty() && refreshLock.tryLock()) {
+            List<Long> itemIds = new ArrayList<>(pending);
+            try {
+                pending.removeAll(itemIds);
+                Collections.sort(itemIds);
+                catalog = catalog.with(itemIds, itemRepository.findCatalogRows(itemIds));
+                log.debug("item catalog refreshed: {}", itemIds);
+            } catch (RuntimeException e) {
+                pending.addAll(itemIds);    // 다음 변경 때 같이 다시 읽는다. (커밋된 트랜잭션에는 영향 없음)
+                log.warn("item catalog refresh failed: {}", itemIds, e);
+                return;
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+}
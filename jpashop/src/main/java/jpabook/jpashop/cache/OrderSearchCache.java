@@ -0,0 +1,185 @@
+package jpabook.jpashop.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSort;
+import jpabook.jpashop.repository.order.simplequery.OrderListDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderChangedEvent;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 주문 검색 결과 캐시 (대시보드가 같은 조건으로 초당 여러 번 조회하는 /api/v6 주문 API, /orders 화면)
+ * - 키: 정규화한 OrderSearch (상태, 회원 이름, 금액 범위, 정렬, 커서, 페이지 크기) + 조회 종류
+ * - ttl-seconds 가 지나면 버린다. + 주문 생성/취소(OrderChangedEvent)가 커밋되면 그 상태를 검색하는 결과를 무효화
+ * - 같은 키를 동시에 조회하면 DB 조회는 1번만 하고 나머지는 그 결과를 기다린다. (single flight)
+ *
+ * 무효화는 "세대(generation)"로 한다.
+ * - 주문 상태마다 세대 번호가 있고, 키에 조회 시작할 때의 세대를 넣는다. 변경이 커밋되면 세대를 올린다.
+ * => 변경 전에 시작한 조회가 늦게 끝나서 옛날 결과를 넣어도, 새 세대 키로 조회하는 요청은 그 결과를 보지 않는다.
+ *
+ * 쓰기 트랜잭션 안에서는 캐시를 쓰지 않는다. (커밋되지 않은 자기 변경이 보이는 결과를 남들과 공유하면 안 되기 때문)
+ * 레플리카를 쓸 때는 읽기 전용 트랜잭션 안에서도 쓰지 않는다. (레플리카에서 읽은 복제 지연 결과를 공유하지 않도록)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSearchCache {
+
+    private static final String ORDER_DTOS = "order-dtos";
+    private static final String ORDER_LIST = "order-list";
+
+    private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    @Value("${jpashop.cache.order-search.enabled:true}")
+    private boolean enabled;
+    @Value("${jpashop.cache.order-search.maximum-size:1000}")
+    private long maximumSize;
+    @Value("${jpashop.cache.order-search.ttl-seconds:5}")
+    private long ttlSeconds;
+    @Value("${jpashop.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    private AsyncCache<SearchKey, CursorSlice<?>> cache;
+    private final AtomicLongArray statusGenerations = new AtomicLongArray(OrderStatus.values().length);
+    private final AtomicLong generation = new AtomicLong();   // 모든 상태 (상태 조건 없는 검색용)
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache.synchronous(), "order-search");
+    }
+
+    /**
+     * /api/v6 주문 DTO 검색
+     */
+    public CursorSlice<OrderSimpleQueryDto> findOrderDtos(OrderSearch orderSearch) {
+        return get(ORDER_DTOS, orderSearch, () -> orderSimpleQueryRepository.findOrderDtos(orderSearch));
+    }
+
+    /**
+     * /orders 주문 목록 화면
+     */
+    public CursorSlice<OrderListDto> findOrderListDtos(OrderSearch orderSearch) {
+        return get(ORDER_LIST, orderSearch, () -> orderSimpleQueryRepository.findOrderListDtos(orderSearch));
+    }
+
+    /**
+     * 커밋된 주문 변경 => 그 주문 상태를 검색하는 결과, 상태 조건 없는 결과를 무효화
+     * (회원 이름은 like 검색이라 어떤 키에 걸리는지 알 수 없어서 상태로만 가린다)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        Set<OrderStatus> statuses = event.getAffectedStatuses();
+        for (OrderStatus status : statuses) {
+            statusGenerations.incrementAndGet(status.ordinal());
+        }
+        generation.incrementAndGet();
+
+        // 옛날 세대 키는 어차피 다시 조회되지 않는다. => 메모리만 빨리 돌려받는다.
+        cache.asMap().keySet().removeIf(key -> key.getOrderStatus() == null || statuses.contains(key.getOrderStatus()));
+        log.debug("order search cache invalidated by {}", event);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CursorSlice<T> get(String kind, OrderSearch orderSearch, Supplier<CursorSlice<T>> loader) {
+        if (!enabled || isWriteTransaction() || isReplicaRead()) {
+            return loader.get();
+        }
+
+        SearchKey key = SearchKey.of(kind, orderSearch, generationOf(orderSearch.getOrderStatus()));
+        CompletableFuture<CursorSlice<?>> loading = new CompletableFuture<>();
+        CompletableFuture<CursorSlice<?>> future = cache.get(key, (k, executor) -> loading);
+        if (future != loading) {
+            return (CursorSlice<T>) await(future);  // 캐시 적중 또는 다른 쓰레드가 조회 중
+        }
+
+        // 처음 조회하는 쓰레드가 자기 쓰레드에서 조회한다. (트랜잭션, 커넥션이 요청 쓰레드에 묶여 있기 때문)
+        try {
+            CursorSlice<T> result = loader.get();
+            loading.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);  // 실패한 결과는 캐시에서 빠진다. => 다음 요청이 다시 조회
+            throw e;
+        }
+    }
+
+    private long generationOf(OrderStatus orderStatus) {
+        return orderStatus == null ? generation.get() : statusGenerations.get(orderStatus.ordinal());
+    }
+
+    private static CursorSlice<?> await(CompletableFuture<CursorSlice<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private boolean isReplicaRead() {
+        return replicaEnabled && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * 결과가 같은 검색은 같은 키가 되도록 정규화 (빈 문자열 => null, 페이지 크기는 실제 조회 크기로)
+     */
+    @Data
+    private static class SearchKey {
+        private final String kind;
+        private final OrderStatus orderStatus;
+        private final String memberName;
+        private final Integer minTotalPrice;
+        private final Integer maxTotalPrice;
+        private final OrderSort sort;
+        private final String cursor;
+        private final int size;
+        private final long generation;
+
+        static SearchKey of(String kind, OrderSearch orderSearch, long generation) {
+            return new SearchKey(kind,
+                    orderSearch.getOrderStatus(),
+                    StringUtils.hasText(orderSearch.getMemberName()) ? orderSearch.getMemberName() : null,
+                    orderSearch.getMinTotalPrice(),
+                    orderSearch.getMaxTotalPrice(),
+                    orderSearch.getSort(),
+                    StringUtils.hasText(orderSearch.getCursor()) ? orderSearch.getCursor() : null,
+                    orderSearch.getPageSize(),
+                    generation);
+        }
+    }
+}
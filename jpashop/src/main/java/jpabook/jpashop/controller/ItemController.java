@@ -1,7 +1,8 @@
 package jpabook.jpashop.controller;
 
+import jpabook.jpashop.cache.ItemCatalog;
+import jpabook.jpashop.cache.ItemCatalogCache;
 import jpabook.jpashop.domain.item.Book;
-import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.dto.UpdateItemDto;
 import jpabook.jpashop.service.ItemService;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,7 @@ public class ItemController {
 
 
     private final ItemService itemService;
+    private final ItemCatalogCache itemCatalogCache;
 
     @GetMapping("/items/new")
     public String createForm(Model model) {
@@ -46,9 +48,13 @@ public class ItemController {
         return "redirect:/items";
     }
 
+    /**
+     * 상품 목록
+     * - 상품 카탈로그 스냅샷에서 바로 => DB 조회, 엔티티 생성 없음 (OSIV를 꺼도 동작)
+     */
     @GetMapping("/items")
     public String list(Model model) {
-        List<Item> items = itemService.findItems();
+        List<ItemCatalog.Entry> items = itemCatalogCache.get().entries();
         model.addAttribute("items", items);
         return "items/itemList";
     }
@@ -1,11 +1,14 @@
 package jpabook.jpashop.controller;
 
+import jpabook.jpashop.cache.ItemCatalog;
+import jpabook.jpashop.cache.ItemCatalogCache;
+import jpabook.jpashop.cache.OrderSearchCache;
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CursorSlice;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.repository.order.simplequery.OrderListDto;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderIntakeService;
 import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -16,6 +19,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 @Controller
@@ -23,13 +27,15 @@ public class OrderController {
 
     private final OrderService orderService;
     private final MemberService memberService;
-    private final ItemService itemService;
+    private final OrderIntakeService orderIntakeService;
+    private final OrderSearchCache orderSearchCache;
+    private final ItemCatalogCache itemCatalogCache;
 
     @GetMapping("/order")
     public String createForm(Model model) {
 
         List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
+        List<ItemCatalog.Entry> items = itemCatalogCache.get().entries();  // 상품 카탈로그 스냅샷 (DB 조회 없음)
 
         model.addAttribute("members", members);
         model.addAttribute("items", items);
@@ -38,10 +44,16 @@ public class OrderController {
     }
 
     @PostMapping("/order")
-    public String order(@RequestParam Long memberId, @RequestParam Long itemId, @RequestParam int count) {
+    public CompletableFuture<String> order(@RequestParam Long memberId, @RequestParam Long itemId, @RequestParam int count) {
+
+        // 주문 접수 큐 모드면 큐에 넣고, 배치 커밋이 끝나면 응답 (요청 쓰레드는 기다리지 않고 반납)
+        if (orderIntakeService.isEnabled()) {
+            return orderIntakeService.submit(memberId, itemId, count)
+                    .thenApply(orderId -> "redirect:/orders");
+        }
 
         orderService.order(memberId, itemId, count);
-        return "redirect:/orders";
+        return CompletableFuture.completedFuture("redirect:/orders");
     }
 
     /**
@@ -53,11 +65,16 @@ public class OrderController {
      * JPA와 관계없는 애가 넘어옴
      */
 
+    /**
+     * 주문 목록
+     * - 화면에 필요한 값만 DTO로 조회 (쿼리 2번, 템플릿에서 LAZY 로딩 없음) + 검색 결과 캐시 (OrderSearchCache)
+     */
     @GetMapping("/orders")
     public String orderList(OrderSearch orderSearch, Model model) {
 
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+        CursorSlice<OrderListDto> orders = orderSearchCache.findOrderListDtos(orderSearch);
+        model.addAttribute("orders", orders.getContent());
+        model.addAttribute("nextCursor", orders.getNextCursor());   // 다음 페이지 링크용
 //        model.addAttribute("orderSearch", orderSearch);   // 생략
 
         return "order/orderList";
@@ -0,0 +1,103 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 읽기 전용 트랜잭션을 레플리카로 보내는 DataSource (jpashop.datasource.replica.enabled=true 일 때만)
+ * - 프라이머리: spring.datasource.*
+ * - 레플리카: jpashop.datasource.replica.urls (쉼표로 여러 개, 계정은 프라이머리와 같음)
+ *
+ * 조회 서비스(@Transactional(readOnly = true))는 그대로 두면 레플리카로 간다.
+ * 쓰고 나서 바로 읽어야 하는 조회는 쓰기 트랜잭션 안에서 하면 프라이머리에서 읽는다.
+ *
+ * 레플리카에서 읽은 값은 캐시에 넣지 않는다. (복제 지연 동안의 옛날 값이 ttl 내내 남지 않도록)
+ * - 2차 캐시: 읽기 전용 트랜잭션은 CacheMode.GET (ReplicaReadJpaDialect)
+ * - 주문 검색 결과 캐시: 읽기 전용 트랜잭션 안의 검색은 캐시를 건너뛴다. (OrderSearchCache)
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Value("${jpashop.datasource.replica.urls:}")
+    private String[] replicaUrls;
+    @Value("${jpashop.datasource.replica.lag-query:}")
+    private String lagQuery;
+    @Value("${jpashop.datasource.replica.max-lag-millis:1000}")
+    private long maxLagMillis;
+    @Value("${jpashop.datasource.replica.health-check-interval-millis:5000}")
+    private long healthCheckIntervalMillis;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName(name);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("jpashop.datasource.replica.urls 를 설정해야 합니다.");
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                StringUtils.hasText(lagQuery) ? lagQuery : null, maxLagMillis, healthCheckIntervalMillis);
+        log.info("read-only transactions routed to {} replica(s)", replicas.size());
+
+        // 트랜잭션 시작 시점이 아니라 첫 SQL 시점에 커넥션을 얻는다. => 그때는 readOnly 여부를 알 수 있다.
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * JpaTransactionManager는 EntityManagerFactory의 JpaDialect를 쓴다. => 스프링 부트가 만든 팩토리에 끼워 넣는다.
+     */
+    @Bean
+    public static BeanPostProcessor replicaReadJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    ((AbstractEntityManagerFactoryBean) bean).setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package jpabook.jpashop.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * 읽기 전용 트랜잭션은 2차 캐시를 읽기만 한다. (CacheMode.GET) - 레플리카를 쓸 때만 (ReplicaDataSourceConfig)
+ * - 읽기 전용 트랜잭션은 레플리카에서 읽는다. => 복제가 늦으면 커밋 전 값을 읽는다.
+ * - 그 값을 2차 캐시(상품, 회원)에 넣으면 ttl 동안 모든 서버 요청이 옛날 값을 본다.
+ *      => 캐시에는 프라이머리에서 읽은 값(쓰기 트랜잭션, 트랜잭션 밖)만 넣는다.
+ * - 트랜잭션이 끝나면 원래 CacheMode로 돌려놓는다. (OSIV로 세션이 트랜잭션보다 오래 사는 경우)
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData) {
+            ReadOnlyTransactionData data = (ReadOnlyTransactionData) transactionData;
+            data.session.setCacheMode(data.previousCacheMode);
+            transactionData = data.delegate;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private static class ReadOnlyTransactionData {
+
+        private final Object delegate;
+        private final Session session;
+        private final CacheMode previousCacheMode;
+
+        ReadOnlyTransactionData(Object delegate, Session session, CacheMode previousCacheMode) {
+            this.delegate = delegate;
+            this.session = session;
+            this.previousCacheMode = previousCacheMode;
+        }
+    }
+}
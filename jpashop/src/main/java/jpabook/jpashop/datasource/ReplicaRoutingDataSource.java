@@ -0,0 +1,217 @@
+package jpabook.jpashop.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 레플리카로, 나머지는 프라이머리로 보내는 DataSource
+ * - @Transactional(readOnly = true) => 레플리카 중 하나 (라운드 로빈)
+ * - 쓰기 트랜잭션, 트랜잭션 밖 => 프라이머리
+ *
+ * 레플리카 상태 확인 (healthCheckIntervalMillis 마다 별도 쓰레드)
+ * - 커넥션을 얻어서 isValid() 확인
+ * - lagQuery가 있으면 실행해서 복제 지연(ms)을 읽고, maxLagMillis 보다 늦으면 빼 둔다. => 방금 쓴 데이터가 안 보이는 시간을 제한
+ *      ex) MySQL: performance_schema 복제 지연, PostgreSQL: now() - pg_last_xact_replay_timestamp()
+ * - 쓸 수 있는 레플리카가 없거나 커넥션을 못 얻으면 프라이머리로 보낸다. (fallback)
+ *
+ * 트랜잭션이 시작할 때는 아직 readOnly 여부가 쓰레드에 묶이지 않았기 때문에
+ * 반드시 LazyConnectionDataSourceProxy로 감싸서, 첫 SQL을 실행할 때 커넥션을 고르게 해야 한다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter primaryRoutes = routeCounter("primary");
+    private final Counter replicaRoutes = routeCounter("replica");
+    private final Counter fallbackRoutes = routeCounter("fallback");
+
+    /**
+     * @param replicas 이름 -> 레플리카 DataSource
+     * @param lagQuery 복제 지연(ms) 한 값을 돌려주는 SQL (없으면 지연은 보지 않는다)
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    String lagQuery, long maxLagMillis, long healthCheckIntervalMillis) {
+        this.primary = primary;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+
+        List<Replica> list = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> list.add(new Replica(name, dataSource)));
+        this.replicas = Collections.unmodifiableList(list);
+
+        checkReplicas();    // 첫 요청부터 상태를 알 수 있도록
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return source.get(primary);
+        }
+
+        Replica replica = chooseReplica();
+        if (replica != null) {
+            try {
+                Connection connection = source.get(replica.getDataSource());
+                replicaRoutes.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.down(e);    // 다음 상태 확인 때까지 빼 둔다.
+            }
+        }
+        fallbackRoutes.increment();
+        return source.get(primary);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 쓸 수 있는 레플리카를 라운드 로빈으로 고른다. (없으면 null)
+     */
+    private Replica chooseReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.getDataSource().getConnection()) {
+                if (!connection.isValid(1)) {
+                    replica.down(null);
+                    continue;
+                }
+                long lag = lagQuery == null ? 0 : readLag(connection);
+                replica.checked(lag, lag <= maxLagMillis);
+            } catch (SQLException | RuntimeException e) {
+                replica.down(e);
+            }
+        }
+    }
+
+    private long readLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        healthChecker.shutdownNow();
+        for (DataSource dataSource : allDataSources()) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+
+    private List<DataSource> allDataSources() {
+        List<DataSource> all = new ArrayList<>();
+        all.add(primary);
+        replicas.forEach(replica -> all.add(replica.getDataSource()));
+        return all;
+    }
+
+    private static Counter routeCounter(String target) {
+        return Counter.builder("jpashop.datasource.route")
+                .description("커넥션을 어디서 얻었는지 (primary: 쓰기, replica: 읽기 전용, fallback: 레플리카를 못 써서 프라이머리)")
+                .tag("target", target)
+                .register(Metrics.globalRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * 레플리카 하나와 마지막 상태 확인 결과
+     */
+    @Getter
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available;
+        private volatile long lagMillis = -1;   // 모르면 -1
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            Gauge.builder("jpashop.datasource.replica.lag", this, Replica::getLagMillis)
+                    .description("레플리카 복제 지연 (ms, 모르면 -1)")
+                    .tag("replica", name)
+                    .register(Metrics.globalRegistry);
+            Gauge.builder("jpashop.datasource.replica.available", this, r -> r.isAvailable() ? 1 : 0)
+                    .tag("replica", name)
+                    .register(Metrics.globalRegistry);
+        }
+
+        void checked(long lagMillis, boolean withinLag) {
+            if (available && !withinLag) {
+                log.warn("replica {} lag {}ms exceeds limit, routing reads to primary", name, lagMillis);
+            }
+            this.lagMillis = lagMillis;
+            this.available = withinLag;
+        }
+
+        void down(Exception cause) {
+            if (available) {
+                log.warn("replica {} is down, routing reads to primary", name, cause);
+            }
+            this.available = false;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package jpabook.jpashop.domain;
 
-import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,9 +11,12 @@ import java.util.List;
 import static javax.persistence.FetchType.LAZY;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path"))
 @Getter @Setter
 public class Category {
 
+    public static final String PATH_SEPARATOR = "/";
+
     @Id
     @GeneratedValue
     @Column(name = "category_id")
@@ -21,13 +24,25 @@ public class Category {
 
     private String name;
 
-    @ManyToMany
-    @JoinTable(name = "category_item",
-            joinColumns = @JoinColumn(name = "category_id"),
-            inverseJoinColumns = @JoinColumn(name = "item_id"))
-    private List<Item> items = new ArrayList<>();
+    /**
+     * 조상 경로 (materialized path) - 루트부터 부모까지의 id
+     * ex) 루트: "/", 루트(1)의 자식: "/1/", 그 자식: "/1/5/"
+     * => 하위 트리 전체: path like '/1/5/{id}/%' (인덱스 범위 검색 한 번), 조상: path의 id들로 IN 조회 한 번
+     * 부모를 정할 때(addChildCategory) 같이 정해진다. 저장된 카테고리를 다른 부모로 옮기는 것은 지원하지 않는다.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(nullable = false)
+    private String path = PATH_SEPARATOR;
+
+    /**
+     * 상품 목록을 화면에 보여줄 때는 이 컬렉션을 쓰지 말고 CategoryItemRepository로 페이지만 조회한다.
+     * (컬렉션은 페이징, 정렬 없이 전부 읽는다)
+     */
+    @OneToMany(mappedBy = "category")
+    private List<CategoryItem> categoryItems = new ArrayList<>();
 
     /**
+     * 처음에는 @ManyToMany + @JoinTable(category_item)로 매핑했었다.
      * ManyToMany를 위해 JoinTable이 필요!
      * 실제 데이터베이스에서는 중간 테이블이 존재하기 때문에
      * 객체에서는 다대다 관계가 가능한데, 관계형 DB는 컬렉션 관계를 양쪽에서 가질 수 있는게 아니기 때문에
@@ -36,15 +51,18 @@ public class Category {
      * 실무에서는 거의 안씀!!!!
      * 중간 테이블(category_item)에 컬럼을 추가할 수 없고, 세밀하게 쿼리를 실행하기 어렵기 때문에
      * 실무에서 사용하기에는 한계가 있다 => 중간 엔티티를 만들고 @ManyToOne, @OneToMany로 매핑해서 사용하자!
+     * => CategoryItem
      */
 
-
-
-
+    /**
+     * 부모와 path는 같이 정해져야 한다. => addChildCategory()로만 바꾼다.
+     */
+    @Setter(AccessLevel.NONE)
     @ManyToOne(fetch = LAZY)
     @JoinColumn(name = "parent_id")
     private Category parent;
 
+    @Setter(AccessLevel.NONE)
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
@@ -55,7 +73,61 @@ public class Category {
 
     // ==연관관계 편의 메서드==
     public void addChildCategory(Category child) {
+        if (child.getId() != null) {
+            // 저장된 카테고리(루트 포함)를 옮기면 그 하위 카테고리들의 path가 옛날 경로로 남는다.
+            throw new IllegalStateException("저장된 카테고리는 다른 부모로 옮길 수 없습니다.");
+        }
+        if (child.getParent() != null && child.getParent() != this) {
+            throw new IllegalStateException("이미 다른 부모가 있는 카테고리입니다.");
+        }
         this.child.add(child);
-        child.setParent(this);
+        child.parent = this;
+        child.updatePath();
+    }
+
+    /**
+     * 아직 저장하지 않은 부모에 붙이면 addChildCategory() 시점에는 부모 id가 없다. => 저장 직전에 다시 맞춘다.
+     */
+    @PrePersist
+    void prePersist() {
+        if (parent != null && parent.getId() == null) {
+            throw new IllegalStateException("부모 카테고리를 먼저 저장해야 합니다.");
+        }
+        updatePath();
+    }
+
+    private void updatePath() {
+        if (parent == null) {
+            path = PATH_SEPARATOR;
+        } else if (parent.getId() != null) {
+            path = parent.getSubtreePath();
+        }
+    }
+
+    /**
+     * 자식들의 path (하위 트리 검색은 이 값으로 시작하는 path)
+     */
+    public String getSubtreePath() {
+        return path + id + PATH_SEPARATOR;
+    }
+
+    /**
+     * 루트는 0
+     */
+    public int getDepth() {
+        return pathIds(path).size();
+    }
+
+    /**
+     * "/1/5/" => [1, 5]
+     */
+    public static List<Long> pathIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        for (String id : path.split(PATH_SEPARATOR)) {
+            if (!id.isEmpty()) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
     }
 }
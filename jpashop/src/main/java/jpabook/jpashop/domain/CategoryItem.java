@@ -0,0 +1,56 @@
+package jpabook.jpashop.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import static javax.persistence.FetchType.LAZY;
+
+/**
+ * 카테고리 - 상품 (@ManyToMany 대신 중간 엔티티)
+ * - 카테고리별 상품 목록은 이 테이블의 인덱스만으로 페이지 범위를 찾고, 그 페이지의 상품만 PK로 읽는다.
+ *      - uk_category_item (category_id, item_id): 상품 id순 페이징, 개수 세기, 중복 방지
+ *      - idx_category_item_price (category_id, item_price, item_id): 가격순 페이징
+ * - itemPrice는 가격순 정렬을 인덱스로 하기 위해 상품 가격을 복사해 둔 값 => 상품 가격이 바뀌면 같이 바꾼다. (ItemService.updateItem)
+ */
+@Entity
+@Table(name = "category_item",
+        uniqueConstraints = @UniqueConstraint(name = "uk_category_item", columnNames = {"category_id", "item_id"}),
+        indexes = @Index(name = "idx_category_item_price", columnList = "category_id, item_price, item_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryItem {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "category_item_id")
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    private Category category;
+
+    @JsonIgnore
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id", nullable = false)
+    private Item item;
+
+    @Column(name = "item_price")
+    private int itemPrice;
+
+    //==생성 메서드==//
+    public static CategoryItem createCategoryItem(Category category, Item item) {
+        CategoryItem categoryItem = new CategoryItem();
+        categoryItem.category = category;
+        categoryItem.item = item;
+        categoryItem.itemPrice = item.getPrice();
+        category.getCategoryItems().add(categoryItem);
+        item.getCategoryItems().add(categoryItem);
+        return categoryItem;
+    }
+}
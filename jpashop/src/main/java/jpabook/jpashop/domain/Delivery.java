@@ -1,8 +1,12 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import jpabook.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -13,8 +17,10 @@ import static javax.persistence.FetchType.LAZY;
 public class Delivery {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "delivery_snowflake")
+    @GenericGenerator(name = "delivery_snowflake", strategy = SnowflakeIdGenerator.STRATEGY)    // 시퀀스로 바꾸려면 PooledSequenceGenerator
     @Column(name = "delivery_id")
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @JsonIgnore
@@ -1,8 +1,14 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.cache.EntityCacheConfig;
+import jpabook.jpashop.domain.id.PooledSequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -11,10 +17,15 @@ import java.util.List;
 
 @Getter @Setter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"))
+// 이름 중복은 최종적으로 DB가 막는다. (동시 가입, 여러 WAS) + unique 인덱스로 이름 조회도 풀스캔하지 않음
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.MEMBER_REGION)  // 2차 캐시 (orders 컬렉션은 캐시하지 않음)
 public class Member {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
 
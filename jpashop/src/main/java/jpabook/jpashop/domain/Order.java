@@ -1,9 +1,13 @@
 package jpabook.jpashop.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import jpabook.jpashop.domain.id.SnowflakeIdGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -13,14 +17,19 @@ import java.util.List;
 import static javax.persistence.FetchType.LAZY;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, order_id"),  // 커서 페이징 (orderDate, order_id) 정렬/조회용
+        @Index(name = "idx_orders_total_price_id", columnList = "total_price, order_id")    // 주문 금액순 정렬/검색용
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "order_snowflake")
+    @GenericGenerator(name = "order_snowflake", strategy = SnowflakeIdGenerator.STRATEGY)    // 시퀀스로 바꾸려면 PooledSequenceGenerator
     @Column(name = "order_id")
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @ManyToOne(fetch = LAZY)
@@ -79,11 +88,22 @@ public class Order {
      * 원래라면 Order, Delivery 각각 persist 해줘야함
      */
 
+    @Version
+    private Long version;   // 낙관적 락 - 같은 주문을 동시에 취소/변경하면 나중 커밋이 실패한다.
+
     private LocalDateTime orderDate;    // 주문 시간
 
     @Enumerated(EnumType.STRING)
     private OrderStatus status; // 주문 상태 [ORDER, CANCEL]
 
+    /**
+     * 전체 주문 가격 (역정규화)
+     * - 주문상품이 추가/삭제/변경될 때마다 같이 맞춘다. => addOrderItem(), removeOrderItem(), OrderItem.setCount()/setOrderPrice()
+     * - 목록에서 금액을 보여주거나 금액으로 검색/정렬할 때 order_item을 읽지 않는다.
+     */
+    @Setter(AccessLevel.NONE)
+    private int totalPrice;
+
     /**
      * 1대1 관계에서는 FK를 어디에 두냐 장단점이 있는데, 주로 액세스를 많이 하는 곳에 FK를 둔다!
      */
@@ -112,6 +132,21 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
+    }
+
+    public void removeOrderItem(OrderItem orderItem) {
+        if (orderItems.remove(orderItem)) {
+            orderItem.setOrder(null);
+            totalPrice -= orderItem.getTotalPrice();
+        }
+    }
+
+    /**
+     * 주문상품의 가격/수량이 바뀌었을 때 (OrderItem에서 호출)
+     */
+    void changeTotalPrice(int delta) {
+        totalPrice += delta;
     }
 
     // ==연관관계 편의 메서드==
@@ -148,6 +183,11 @@ public class Order {
      */
     public void cancel() {
 
+        // 이미 취소된 주문이면, (재시도 등으로 두 번 취소되면 재고가 두 번 원복된다)
+        if (status == OrderStatus.CANCEL) {
+            throw new IllegalStateException("이미 취소된 주문입니다.");
+        }
+
         // 이미 배송 완료 상태면,
         if(delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
@@ -167,13 +207,12 @@ public class Order {
     /**
      * 전체 주문 가격 조회
      *      -- 실무에서는 주로 주문에 전체 주문 가격 필드를 두고 역정규화 한다! --
+     *      => totalPrice 필드로 역정규화 (orderItems를 LAZY 로딩하지 않는다)
      */
     public int getTotalPrice() {
 
         // 전체 주문 가격
-        return orderItems.stream()
-                .mapToInt(OrderItem::getTotalPrice)
-                .sum();
+        return totalPrice;
     }
 
 }
@@ -1,11 +1,15 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import jpabook.jpashop.domain.id.SnowflakeIdGenerator;
 import jpabook.jpashop.domain.item.Item;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -18,8 +22,10 @@ import static javax.persistence.FetchType.LAZY;
 public class OrderItem {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "order_item_snowflake")
+    @GenericGenerator(name = "order_item_snowflake", strategy = SnowflakeIdGenerator.STRATEGY)    // 시퀀스로 바꾸려면 PooledSequenceGenerator
     @Column(name = "order_item_id")
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
 
@@ -54,6 +60,27 @@ public class OrderItem {
     }
 
 
+    /**
+     * 가격/수량이 바뀌면 주문의 전체 가격(Order.totalPrice)도 차이만큼 맞춘다.
+     */
+    public void setOrderPrice(int orderPrice) {
+        int before = getTotalPrice();
+        this.orderPrice = orderPrice;
+        changeOrderTotalPrice(before);
+    }
+
+    public void setCount(int count) {
+        int before = getTotalPrice();
+        this.count = count;
+        changeOrderTotalPrice(before);
+    }
+
+    private void changeOrderTotalPrice(int before) {
+        if (order != null) {
+            order.changeTotalPrice(getTotalPrice() - before);
+        }
+    }
+
     //==비즈니스 로직==/
     public void cancel() {
         // Item의 재고 수량을 원복해준다.
@@ -0,0 +1,37 @@
+package jpabook.jpashop.domain.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 시퀀스를 블록 단위로 할당받는 id 생성기 (pooled-lo)
+ * - 기본 @GeneratedValue는 row 하나 INSERT 할 때마다 시퀀스를 한 번씩 조회한다. (DB 왕복 1번 추가)
+ * - 시퀀스를 block-size 만큼 증가시켜 두고, 그 범위 안의 id는 메모리에서 하나씩 꺼내 쓴다.
+ *      => block-size 건 INSERT에 시퀀스 조회 1번
+ * - block-size는 spring.jpa.properties.jpashop.id.block-size 로 설정한다. (기본 50)
+ *
+ * 사용법: @GenericGenerator(strategy = PooledSequenceGenerator.STRATEGY, parameters = @Parameter(name = "sequence_name", value = "..."))
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "jpabook.jpashop.domain.id.PooledSequenceGenerator";
+    public static final String BLOCK_SIZE_SETTING = "jpashop.id.block-size";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+
+        int blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_BLOCK_SIZE);
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+}
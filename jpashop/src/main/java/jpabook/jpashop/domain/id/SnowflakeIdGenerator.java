@@ -0,0 +1,96 @@
+package jpabook.jpashop.domain.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 시간 순서 64bit id 생성기 (Snowflake 방식)
+ * - [timestamp 41bit][node id 10bit][sequence 12bit]
+ * - DB 시퀀스를 거치지 않고 애플리케이션 메모리에서 바로 만든다. => 여러 서버가 공유 시퀀스를 두고 경합하지 않는다.
+ * - 시간 순서로 증가하기 때문에 PK 인덱스에 뒤로만 쌓인다.
+ * - node id는 서버마다 다르게 spring.jpa.properties.jpashop.id.node-id 로 설정한다. (0 ~ 1023)
+ *      기본값은 없다. => 설정하지 않으면 시작할 때 실패한다. (모든 서버가 0으로 떠서 PK가 겹치지 않도록)
+ *
+ * 시계가 뒤로 가면(NTP 보정 등) 마지막으로 발급한 시간에서 이어서 발급한다. => 중복되거나 작아지는 id는 없다.
+ * 1ms에 4096개를 넘게 발급하면 다음 ms를 당겨 쓴다.
+ * (같은 node id로 재시작했는데 시계가 이전 실행보다 뒤에 있으면 중복될 수 있다 => 서버 시계는 NTP로 맞춘다)
+ *
+ * 값이 2^53 보다 커지기 때문에 자바스크립트가 숫자로 읽으면 반올림된다.
+ * => JSON에는 문자열로 내려준다. (@JsonSerialize(using = ToStringSerializer.class)), 화면에서도 문자열로 다룬다.
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    public static final String STRATEGY = "jpabook.jpashop.domain.id.SnowflakeIdGenerator";
+    public static final String NODE_ID_SETTING = "jpashop.id.node-id";
+
+    static final long EPOCH = 1672531200000L;   // 2023-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final LongSupplier clock;
+    private final AtomicLong lastState = new AtomicLong();  // (timestamp << SEQUENCE_BITS) | sequence
+    private long nodeId;
+
+    public SnowflakeIdGenerator() {
+        this(0, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        this.nodeId = validateNodeId(nodeId);
+        this.clock = clock;
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String configured = ConfigurationHelper.getString(NODE_ID_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings());
+        if (configured == null || configured.trim().isEmpty()) {
+            throw new MappingException(NODE_ID_SETTING + " 를 서버마다 다르게 설정해야 합니다. (0 ~ " + MAX_NODE_ID + ")");
+        }
+        try {
+            this.nodeId = validateNodeId(Long.parseLong(configured.trim()));
+        } catch (NumberFormatException e) {
+            throw new MappingException(NODE_ID_SETTING + " 는 숫자여야 합니다. value=" + configured, e);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        return nextId();
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = lastState.get();
+            // 시간이 흘렀으면 새 ms의 0번부터, 같은 ms거나 시계가 뒤로 갔으면 마지막 값 + 1 (sequence가 넘치면 다음 ms로 올라감)
+            next = Math.max(now, prev + 1);
+        } while (!lastState.compareAndSet(prev, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private static long validateNodeId(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new MappingException("node id는 0 ~ " + MAX_NODE_ID + " 사이여야 합니다. nodeId=" + nodeId);
+        }
+        return nodeId;
+    }
+}
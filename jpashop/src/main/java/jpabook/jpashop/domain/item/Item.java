@@ -1,9 +1,15 @@
 package jpabook.jpashop.domain.item;
 
-import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.cache.EntityCacheConfig;
+import jpabook.jpashop.domain.CategoryItem;
+import jpabook.jpashop.domain.id.PooledSequenceGenerator;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,6 +18,7 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.ITEM_REGION)  // 2차 캐시 (하위 타입도 같은 영역)
 @Getter @Setter
 public abstract class Item {
 
@@ -21,16 +28,45 @@ public abstract class Item {
      */
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "item_seq")
+    @GenericGenerator(name = "item_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "item_seq"))
     @Column(name = "item_id")
     private Long id;
 
+    /**
+     * 낙관적 락
+     * - 상품 수정이 동시에 일어나면 나중에 커밋하는 쪽이 OptimisticLockException => 조용히 덮어쓰지 않는다.
+     * - 재고는 원자적 UPDATE로 바꾸기 때문에 버전을 올리지 않는다. (주문끼리는 충돌로 보지 않음)
+     */
+    @Version
+    private Long version;
+
     private String name;
     private int price;
+
+    /**
+     * 재고는 변경 감지(dirty checking)로 UPDATE 하지 않는다. (updatable = false)
+     * => 조회 -> 수정 -> 커밋 방식은 동시 주문이 들어오면 서로 덮어써서 재고가 틀어진다. (lost update)
+     * => DB 재고는 항상 ItemRepository의 원자적 UPDATE(stock_quantity = stock_quantity - :n)로만 바꾼다.
+     * 엔티티의 addStock(), removeStock()은 검증 + 현재 트랜잭션 안에서 엔티티 값을 맞춰주는 역할
+     * 2차 캐시에 있는 값은 ItemRepository가 재고를 바꿀 때 커밋까지 잠가서 옛날 값이 남지 않게 한다.
+     */
+    @Column(updatable = false)
     private int stockQuantity;
 
-    @ManyToMany(mappedBy = "items")
-    private List<Category> categories = new ArrayList<>();
+    /**
+     * 분산 재고 모드 (flash sale 처럼 한 상품에 주문이 몰릴 때)
+     * - 0이면 item row 하나에 재고를 둔다. (기본)
+     * - N이면 재고를 ItemStockBucket N개 row에 나눠 담고, stockQuantity 컬럼은 쓰지 않는다.
+     */
+    private int stockBucketCount;
+
+    @OneToMany(mappedBy = "item")
+    private List<ItemStockBucket> stockBuckets = new ArrayList<>();
+
+    @OneToMany(mappedBy = "item")
+    private List<CategoryItem> categoryItems = new ArrayList<>();
 
     //==비즈니스 로직==
     /**
@@ -39,11 +75,31 @@ public abstract class Item {
      * => stockQuantity를 변경해야 할 일이 있으면, 핵심 비즈니스 메서드르 가지고 변경해야한다!! (Setter가 아닌!)
      */
 
+    public boolean isStockSharded() {
+        return stockBucketCount > 0;
+    }
+
+    /**
+     * 재고 수량 조회
+     * - 분산 재고 모드면 버킷 재고를 모두 더한다.
+     */
+    public int getStockQuantity() {
+        if (isStockSharded()) {
+            return stockBuckets.stream()
+                    .mapToInt(ItemStockBucket::getStockQuantity)
+                    .sum();
+        }
+        return stockQuantity;
+    }
+
     /**
      * stock 증가 (재고 수량 증가)
      */
     public void addStock(int quantity) {
 
+        if (isStockSharded()) {
+            return; // 분산 재고는 ItemRepository가 버킷 row에 직접 반영한다.
+        }
         this.stockQuantity += quantity;
     }
 
@@ -52,6 +108,9 @@ public abstract class Item {
      */
     public void removeStock(int quantity) {
 
+        if (isStockSharded()) {
+            return; // 분산 재고는 ItemRepository가 버킷 row에서 조건부로 차감한다. (재고 검증도 거기서)
+        }
         int restStock = this.stockQuantity - quantity;
         if(restStock < 0) {
             throw new NotEnoughStockException("need more stock");
@@ -0,0 +1,48 @@
+package jpabook.jpashop.domain.item;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import static javax.persistence.FetchType.LAZY;
+
+/**
+ * 상품 재고 버킷 (분산 재고)
+ * - 한 상품의 재고를 여러 row에 나눠 담는다.
+ * - 주문마다 임의의 버킷 row를 차감하기 때문에, 같은 상품 주문이 한 row의 락을 두고 줄을 서지 않는다.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_item_stock_bucket", columnNames = {"item_id", "bucket_no"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemStockBucket {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "item_stock_bucket_id")
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @Column(name = "bucket_no")
+    private int bucketNo;
+
+    @Column(updatable = false)  // Item.stockQuantity와 마찬가지로 원자적 UPDATE로만 변경
+    private int stockQuantity;
+
+    //==생성 메서드==//
+    public static ItemStockBucket createBucket(Item item, int bucketNo, int stockQuantity) {
+        ItemStockBucket bucket = new ItemStockBucket();
+        bucket.item = item;
+        bucket.bucketNo = bucketNo;
+        bucket.stockQuantity = stockQuantity;
+        item.getStockBuckets().add(bucket);
+        return bucket;
+    }
+}
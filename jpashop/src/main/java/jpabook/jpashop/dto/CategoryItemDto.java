@@ -0,0 +1,17 @@
+package jpabook.jpashop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 카테고리 상품 목록 한 줄 (JPQL new 연산자로 바로 조회)
+ */
+@Data
+@AllArgsConstructor
+public class CategoryItemDto {
+
+    private Long itemId;
+    private String name;
+    private int price;
+
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 일괄 가입 결과 한 줄 (요청 순서대로)
+ */
+@Getter
+@AllArgsConstructor
+public class MemberJoinResult {
+
+    private int index;      // 요청 배열에서의 위치
+    private String name;
+    private Status status;
+    private Long id;        // CREATED 일 때만
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,          // 이미 가입된 이름 또는 같은 요청 안에서 앞에 나온 이름
+        INVALID             // 이름이 비어 있음
+    }
+
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * 장바구니 주문 한 줄 (상품, 수량)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLineDto {
+
+    @NotNull
+    private Long itemId;
+    @Positive   // 음수면 조건부 UPDATE(stock_quantity - ?)가 재고를 늘린다.
+    private int count;
+
+}
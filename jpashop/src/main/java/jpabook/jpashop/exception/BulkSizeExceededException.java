@@ -0,0 +1,12 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 일괄 요청 건수가 jpashop.member.bulk.max-size를 넘은 경우 => 400 (ApiExceptionAdvice)
+ */
+public class BulkSizeExceededException extends IllegalArgumentException {
+
+    public BulkSizeExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 커서(OrderCursor, CategoryItemCursor)를 해석할 수 없거나 정렬 기준이 다를 때 => 400 (ApiExceptionAdvice)
+ * - 클라이언트가 받은 nextCursor를 그대로 넘기지 않은 경우다.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
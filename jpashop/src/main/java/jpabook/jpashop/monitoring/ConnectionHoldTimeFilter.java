@@ -0,0 +1,54 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.monitoring.ConnectionHoldTimeListener.HoldTime;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP 요청 1번에 DB 커넥션을 들고 있던 시간
+ * - jpashop.connection.hold.request 타이머 (method, uri 패턴 별)
+ * - 같은 uri의 http.server.requests 와 비교하면 요청 시간 중 커넥션을 쓰는 비율이 나온다.
+ *      ex) OSIV를 켠 화면은 렌더링 시간까지 커넥션을 들고 있다. (spring.jpa.open-in-view)
+ *
+ * 비동기 응답(StreamingResponseBody)은 다른 쓰레드에서 커넥션을 쓰기 때문에 세지 않는다.
+ */
+@Slf4j
+@Component
+public class ConnectionHoldTimeFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        long start = System.nanoTime();
+        try (HoldTime holdTime = ConnectionHoldTimeListener.start()) {
+            filterChain.doFilter(request, response);
+            record(request, holdTime.getNanos(), System.nanoTime() - start);
+        }
+    }
+
+    private void record(HttpServletRequest request, long holdNanos, long requestNanos) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        Timer.builder("jpashop.connection.hold.request")
+                .description("HTTP 요청 1번에 DB 커넥션을 들고 있던 시간")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.99)
+                .register(Metrics.globalRegistry)
+                .record(holdNanos, TimeUnit.NANOSECONDS);
+        log.debug("{} {} - connection held {}ms of {}ms", request.getMethod(), uri,
+                TimeUnit.NANOSECONDS.toMillis(holdNanos), TimeUnit.NANOSECONDS.toMillis(requestNanos));
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * 커넥션을 들고 있는 시간 재기 (p6spy 커넥션 이벤트)
+ * - DataSource에서 커넥션을 얻은 때부터 close()로 풀에 돌려준 때까지를 지금 쓰레드의 HoldTime에 더한다.
+ * - 한 쓰레드가 커넥션을 여러 개 겹쳐서 들고 있으면 (REQUIRES_NEW 등) 겹친 시간은 한 번만 센다. => 벽시계 시간
+ *
+ * OSIV가 켜져 있으면 첫 트랜잭션에서 얻은 커넥션을 화면을 다 그릴 때까지 들고 있다.
+ * => 요청 시간 중 커넥션을 들고 있는 시간이 얼마나 되는지 보면 풀을 쿼리가 아니라 렌더링에 쓰고 있는지 알 수 있다.
+ */
+@Component
+public class ConnectionHoldTimeListener extends JdbcEventListener {
+
+    private static final ThreadLocal<HoldTime> ACTIVE = new ThreadLocal<>();
+
+    /**
+     * 지금 쓰레드에서 커넥션을 들고 있는 시간을 재기 시작 => 다 쓰면 close()
+     */
+    public static HoldTime start() {
+        HoldTime holdTime = new HoldTime();
+        ACTIVE.set(holdTime);
+        return holdTime;
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        HoldTime holdTime = ACTIVE.get();
+        if (holdTime != null && e == null) {
+            holdTime.acquired();
+        }
+    }
+
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        HoldTime holdTime = ACTIVE.get();
+        if (holdTime != null) {
+            holdTime.released();
+        }
+    }
+
+    public static class HoldTime implements AutoCloseable {
+
+        private int open;
+        private long openedAt;
+        private long totalNanos;
+
+        private HoldTime() {
+        }
+
+        void acquired() {
+            if (open++ == 0) {
+                openedAt = System.nanoTime();
+            }
+        }
+
+        void released() {
+            if (open > 0 && --open == 0) {
+                totalNanos += System.nanoTime() - openedAt;
+            }
+        }
+
+        /**
+         * 지금까지 커넥션을 들고 있던 시간 (아직 들고 있으면 지금까지)
+         */
+        public long getNanos() {
+            return open > 0 ? totalNanos + System.nanoTime() - openedAt : totalNanos;
+        }
+
+        @Override
+        public void close() {
+            if (ACTIVE.get() == this) {
+                ACTIVE.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Service, @Repository public 메서드 실행 시간 => jpashop.method 타이머 (layer, class, method, outcome)
+ * - p50, p99, p999 + Prometheus histogram 버킷
+ *
+ * 호출마다 새 객체를 만들지 않는다.
+ * - @Aspect(ProceedingJoinPoint)는 호출마다 JoinPoint를 만들기 때문에 MethodInterceptor로 직접 감싼다.
+ * - Timer는 메서드별로 처음 한 번만 만들고 캐시한다. => 이후로는 Map 조회 + nanoTime 2번 + record
+ */
+public class MethodTimingInterceptor implements MethodInterceptor {
+
+    private final ConcurrentMap<Method, Timers> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Timers methodTimers = timers.get(invocation.getMethod());
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(invocation.getMethod(), method -> new Timers(invocation));
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            methodTimers.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private static class Timers {
+
+        private final Timer success;
+        private final Timer error;
+
+        Timers(MethodInvocation invocation) {
+            Class<?> targetClass = AopUtils.getTargetClass(invocation.getThis());
+            String layer = AnnotatedElementUtils.hasAnnotation(targetClass, Repository.class) ? "repository" : "service";
+            this.success = timer(layer, targetClass, invocation.getMethod(), "SUCCESS");
+            this.error = timer(layer, targetClass, invocation.getMethod(), "ERROR");
+        }
+
+        private static Timer timer(String layer, Class<?> targetClass, Method method, String outcome) {
+            return Timer.builder("jpashop.method")
+                    .description("서비스/리포지토리 메서드 실행 시간")
+                    .tag("layer", layer)
+                    .tag("class", targetClass.getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package jpabook.jpashop.monitoring;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class MonitoringConfig {
+
+    /**
+     * @Service, @Repository public 메서드 실행 시간 측정
+     * - 재시도(@RetryOnOptimisticLock), 트랜잭션보다 바깥에서 => 재시도, 커밋 시간까지 포함
+     */
+    @Bean
+    public static Advisor methodTimingAdvisor() {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("execution(public * *(..))" +
+                " && (within(@org.springframework.stereotype.Service *) || within(@org.springframework.stereotype.Repository *))");
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new MethodTimingInterceptor());
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+        return advisor;
+    }
+}
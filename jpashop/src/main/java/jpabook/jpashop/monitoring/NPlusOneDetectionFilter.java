@@ -0,0 +1,47 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.monitoring.NPlusOneDetector.DetectionScope;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 요청 단위 N+1 탐지 (NPlusOneDetector)
+ * - sample-rate 비율의 요청만 탐지한다. (운영에서는 낮게 켜두고, 개발에서는 1.0)
+ * - 컨트롤러뿐 아니라 뷰 렌더링(Thymeleaf에서 order.orderItems 순회), JSON 직렬화 중의 LAZY 로딩도 잡힌다.
+ */
+@Component
+@RequiredArgsConstructor
+public class NPlusOneDetectionFilter extends OncePerRequestFilter {
+
+    private final NPlusOneDetector detector;
+
+    @Value("${jpashop.n-plus-one.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jpashop.n-plus-one.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || ThreadLocalRandom.current().nextDouble() >= sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        try (DetectionScope scope = detector.start()) {
+            filterChain.doFilter(request, response);
+            detector.report(scope, request.getMethod() + " " + request.getRequestURI());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 런타임 N+1 탐지
+ * - 하이버네이트 이벤트로 LAZY 로딩을 잡는다.
+ *      - 프록시 초기화 (order.getMember().getName()) => LoadEvent(IMMEDIATE_LOAD)
+ *      - 컬렉션 초기화 (order.getOrderItems() 순회) => InitializeCollectionEvent
+ * - 같은 엔티티/컬렉션을, 같은 애플리케이션 코드 위치(call site)에서 threshold 번 이상 LAZY 로딩하면 N+1로 본다.
+ * - SQL 없이 끝난 로딩(2차 캐시 적중 - 상품, 회원)은 세지 않는다. => 로딩 앞뒤 SqlStatementCounter.threadTotal() 차이로 판단
+ *
+ * start()로 열어둔 범위(DetectionScope) 안에서만 센다. => 범위가 없으면 ThreadLocal 확인 1번으로 끝
+ * call site를 찾으려고 스택을 훑는 비용이 있기 때문에 요청 중 일부만 샘플링한다. (NPlusOneDetectionFilter)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NPlusOneDetector implements LoadEventListener, InitializeCollectionEventListener {
+
+    private static final String APP_PACKAGE = "jpabook.jpashop.";
+    private static final String MONITORING_PACKAGE = "jpabook.jpashop.monitoring.";
+    private static final String NO_APP_FRAME = "(애플리케이션 코드 밖 - 뷰 렌더링/직렬화)";
+
+    private static final ThreadLocal<List<DetectionScope>> ACTIVE = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<Map<Object, Long>> STATEMENTS_BEFORE = ThreadLocal.withInitial(IdentityHashMap::new); // 로딩 이벤트 -> 시작할 때 SQL 수
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final EntityManagerFactory emf;
+
+    @Value("${jpashop.n-plus-one.threshold:5}")
+    private int threshold;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        BeforeLoad beforeLoad = new BeforeLoad();
+        registry.prependListeners(EventType.LOAD, beforeLoad);
+        registry.prependListeners(EventType.INIT_COLLECTION, beforeLoad);
+        registry.appendListeners(EventType.LOAD, this);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    /**
+     * 지금 쓰레드에서 LAZY 로딩 기록 시작 => 다 쓰면 close()
+     */
+    public DetectionScope start() {
+        DetectionScope scope = new DetectionScope(threshold);
+        ACTIVE.get().add(scope);
+        return scope;
+    }
+
+    /**
+     * 범위 안에서 탐지된 N+1을 로그와 jpashop.n-plus-one.detected 메트릭으로 남긴다.
+     */
+    public void report(DetectionScope scope, String request) {
+        for (Detection detection : scope.getDetections()) {
+            log.warn("N+1 detected [{}] {} {} lazy loaded {} times at {}",
+                    request, detection.getKind(), detection.getTarget(), detection.getCount(), detection.getCallSite());
+            Metrics.counter("jpashop.n-plus-one.detected",
+                    "kind", detection.getKind(),
+                    "target", detection.getTarget(),
+                    "call_site", detection.getCallSite()).increment();
+        }
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            record(event, "entity", event.getEntityClassName());
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        record(event, "collection", event.getCollection().getRole());
+    }
+
+    private void record(Object event, String kind, String target) {
+        List<DetectionScope> scopes = ACTIVE.get();
+        if (scopes.isEmpty()) {
+            return;
+        }
+        Long before = STATEMENTS_BEFORE.get().remove(event);
+        if (before != null && before == SqlStatementCounter.threadTotal()) {
+            return; // SQL 없이 로딩됨 (2차 캐시)
+        }
+        String callSite = callSite();
+        for (DetectionScope scope : scopes) {
+            scope.record(kind, target, callSite);
+        }
+    }
+
+    /**
+     * LAZY 로딩을 일으킨 애플리케이션 코드 위치 (하이버네이트 프록시, 모니터링 코드는 건너뛴다)
+     */
+    private static String callSite() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(APP_PACKAGE))
+                .filter(f -> !f.getClassName().startsWith(MONITORING_PACKAGE))
+                .filter(f -> !f.getClassName().contains("$HibernateProxy$"))
+                .findFirst()
+                .map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse(NO_APP_FRAME));
+    }
+
+    public static class DetectionScope implements AutoCloseable {
+
+        private final int threshold;
+        private final Map<List<String>, Integer> counts = new HashMap<>(); // [kind, target, callSite] -> 횟수
+
+        private DetectionScope(int threshold) {
+            this.threshold = threshold;
+        }
+
+        private void record(String kind, String target, String callSite) {
+            counts.merge(Arrays.asList(kind, target, callSite), 1, Integer::sum);
+        }
+
+        public List<Detection> getDetections() {
+            return counts.entrySet().stream()
+                    .filter(e -> e.getValue() >= threshold)
+                    .map(e -> new Detection(e.getKey().get(0), e.getKey().get(1), e.getKey().get(2), e.getValue()))
+                    .sorted(Comparator.comparing(Detection::getCount).reversed())
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void close() {
+            List<DetectionScope> scopes = ACTIVE.get();
+            scopes.remove(this);
+            if (scopes.isEmpty()) {
+                STATEMENTS_BEFORE.get().clear();    // 로딩 중 예외로 짝이 안 맞은 기록이 남지 않도록
+            }
+        }
+    }
+
+    /**
+     * 하이버네이트가 로딩하기 전에 지금까지의 SQL 수를 기억해 둔다. (범위가 열려 있을 때만)
+     */
+    private static class BeforeLoad implements LoadEventListener, InitializeCollectionEventListener {
+
+        @Override
+        public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+            if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+                remember(event);
+            }
+        }
+
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+            remember(event);
+        }
+
+        private void remember(Object event) {
+            if (!ACTIVE.get().isEmpty()) {
+                STATEMENTS_BEFORE.get().put(event, SqlStatementCounter.threadTotal());
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Detection {
+        private final String kind;      // entity, collection
+        private final String target;    // 엔티티 이름 또는 컬렉션 role (Order.orderItems)
+        private final String callSite;  // 클래스.메서드:라인
+        private final int count;
+    }
+}
@@ -0,0 +1,130 @@
+package jpabook.jpashop.monitoring;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 요청이 끝날 때까지 flush를 미루는 응답 (SqlStatementCountFilter에서 헤더를 쓰기 위해)
+ * - 본문은 그대로 서블릿 버퍼에 쓴다. (따로 복사해서 들고 있지 않음)
+ * - 비동기 요청(StreamingResponseBody 등)은 flush가 곧 전송이기 때문에 미루지 않는다.
+ */
+class SqlCountResponse extends HttpServletResponseWrapper {
+
+    private final HttpServletRequest request;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean flushDeferred;
+
+    SqlCountResponse(HttpServletRequest request, HttpServletResponse response) {
+        super(response);
+        this.request = request;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new DeferredFlushOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(super.getWriter()) {
+                @Override
+                public void flush() {
+                    if (deferFlush()) {
+                        return;
+                    }
+                    super.flush();
+                }
+
+                @Override
+                public void close() {
+                    if (deferFlush()) {
+                        return;
+                    }
+                    super.close();
+                }
+            };
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (deferFlush()) {
+            return;
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * 미뤄둔 flush 실행 (필터 끝에서)
+     */
+    void flushDeferred() throws IOException {
+        if (flushDeferred && !request.isAsyncStarted()) {
+            flushDeferred = false;
+            super.flushBuffer();
+        }
+    }
+
+    private boolean deferFlush() {
+        if (request.isAsyncStarted()) {
+            return false;
+        }
+        flushDeferred = true;
+        return true;
+    }
+
+    private class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        DeferredFlushOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (deferFlush()) {
+                return;
+            }
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (deferFlush()) {
+                return;     // close도 커밋이 되기 때문에 컨테이너가 요청 끝에 닫도록 둔다.
+            }
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
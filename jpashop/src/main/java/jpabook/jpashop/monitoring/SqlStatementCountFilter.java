@@ -0,0 +1,61 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 1번에 실행한 SQL 수
+ * - 응답 헤더 X-SQL-Statement-Count 로 내려준다. => 화면/API 별로 N+1이 생겼는지 바로 보인다.
+ * - jpashop.sql.statements.request 메트릭 (method, uri 패턴 별)
+ *
+ * 헤더는 응답이 커밋되기 전에 써야 한다.
+ * => Jackson이 직렬화 끝에 flush() 하면서 응답이 커밋되기 때문에, 요청이 끝날 때까지 flush를 미룬다. (SqlCountResponse)
+ * 응답 본문이 서블릿 버퍼보다 커서 먼저 커밋되면 헤더는 빠지고 메트릭만 남는다.
+ * 비동기 응답(StreamingResponseBody)은 다른 쓰레드에서 실행되는 SQL이라 세지 않는다.
+ */
+@Slf4j
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-SQL-Statement-Count";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        SqlCountResponse countResponse = new SqlCountResponse(request, response);
+        try (StatementCount count = SqlStatementCounter.start()) {
+            filterChain.doFilter(request, countResponse);
+
+            if (!response.isCommitted()) {
+                response.setIntHeader(HEADER, count.getCount());
+            }
+            record(request, count.getCount());
+        } finally {
+            countResponse.flushDeferred();
+        }
+    }
+
+    private void record(HttpServletRequest request, int statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("jpashop.sql.statements.request")
+                .description("HTTP 요청 1번에 실행한 SQL 수")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(Metrics.globalRegistry)
+                .record(statements);
+        log.debug("{} {} - {} SQL statements", request.getMethod(), uri, statements);
+    }
+}
@@ -0,0 +1,107 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL 실행 횟수 세기 (하이버네이트 StatementInspector)
+ * - 하이버네이트가 PreparedStatement를 만들 때마다 불린다. => JDBC batch는 batch 1번에 1번으로 센다. (DB 왕복 수)
+ * - 지금 쓰레드에서 start()로 열어둔 StatementCount 모두에 더한다. (요청 단위, 테스트 단위가 겹쳐도 된다)
+ * - 스프링 트랜잭션 안이면 트랜잭션 단위로도 세서 끝날 때 jpashop.sql.statements.transaction 메트릭으로 남긴다.
+ *
+ * 하이버네이트를 거치지 않는 SQL(Session.doWork 안의 JDBC)은 세지 않는다.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<List<StatementCount>> ACTIVE = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<long[]> THREAD_TOTAL = ThreadLocal.withInitial(() -> new long[1]);
+    private static final Object TRANSACTION_KEY = new Object();
+
+    private static final DistributionSummary transactionStatements = DistributionSummary
+            .builder("jpashop.sql.statements.transaction")
+            .description("트랜잭션 1번에 실행한 SQL 수")
+            .register(Metrics.globalRegistry);
+
+    /**
+     * 지금 쓰레드에서 실행되는 SQL을 세기 시작 => 다 쓰면 close()
+     */
+    public static StatementCount start() {
+        StatementCount count = new StatementCount();
+        ACTIVE.get().add(count);
+        return count;
+    }
+
+    /**
+     * 지금 쓰레드에서 지금까지 실행한 SQL 수 (계속 늘기만 한다) - 어떤 작업 앞뒤 차이로 SQL이 나갔는지 본다. (NPlusOneDetector)
+     */
+    public static long threadTotal() {
+        return THREAD_TOTAL.get()[0];
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        THREAD_TOTAL.get()[0]++;
+        for (StatementCount count : ACTIVE.get()) {
+            count.increment();
+        }
+        countTransaction();
+        return sql;
+    }
+
+    private void countTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        StatementCount count = (StatementCount) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+        if (count == null) {
+            StatementCount transactionCount = new StatementCount();
+            count = transactionCount;
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, transactionCount);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                    transactionStatements.record(transactionCount.getCount());
+                }
+            });
+        }
+        count.increment();
+    }
+
+    public static class StatementCount implements AutoCloseable {
+
+        private int count;
+
+        private StatementCount() {
+        }
+
+        void increment() {
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            ACTIVE.get().remove(this);
+        }
+    }
+}
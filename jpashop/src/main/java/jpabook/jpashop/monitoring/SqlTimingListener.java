@@ -0,0 +1,91 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 실행 시간 => jpashop.sql 타이머 (operation, sql 모양)
+ * - p6spy가 감싼 DataSource에서 실행될 때마다 불린다. (하이버네이트를 거치지 않는 JDBC도 포함, batch는 1번)
+ * - SQL 모양: 공백 정리, 리터럴 -> ?, IN (?, ?, ?) -> IN (?) => 파라미터 값/개수가 달라도 같은 타이머
+ *
+ * 타이머는 모양별로 하나, 모양이 MAX_SHAPES 개를 넘으면 새 모양은 "other" 로 묶는다. (메트릭 수 폭발 방지)
+ * SQL 문자열 -> 타이머는 따로 기억해 둔다. (하이버네이트는 같은 SQL 문자열 객체를 재사용 => 해시도 캐시되어 있음)
+ * => 처음 보는 SQL만 정규화하고, 이후로는 Map 조회 + record
+ *    IN 목록 크기마다 SQL 문자열이 다르기 때문에 이 기억은 MAX_RAW_SQL 개까지만 (넘으면 매번 정규화, 타이머는 같은 모양 것)
+ *
+ * 분위수(p50, p99, p99.9)만 내보낸다. 모양 태그가 최대 MAX_SHAPES 개라 히스토그램 버킷까지 내보내면 시계열이 너무 많다.
+ */
+@Component
+public class SqlTimingListener extends JdbcEventListener {
+
+    private static final int MAX_SHAPES = 1000;
+    private static final int MAX_RAW_SQL = 10_000;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private final ConcurrentMap<String, Timer> shapeTimers = new ConcurrentHashMap<>();  // SQL 모양 -> 타이머
+    private final ConcurrentMap<String, Timer> rawTimers = new ConcurrentHashMap<>();    // SQL 문자열 -> 타이머 (정규화 생략용)
+    private final Timer other = timer("other", "other");
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        if (sql == null) {
+            return;
+        }
+        timerOf(sql).record(timeElapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    Timer timerOf(String sql) {
+        Timer timer = rawTimers.get(sql);
+        if (timer != null) {
+            return timer;
+        }
+        String shape = normalize(sql);
+        timer = shapeTimers.get(shape);
+        if (timer == null) {
+            timer = shapeTimers.size() >= MAX_SHAPES
+                    ? other
+                    : shapeTimers.computeIfAbsent(shape, s -> timer(operation(s), s));
+        }
+        if (timer != other && rawTimers.size() < MAX_RAW_SQL) {
+            rawTimers.putIfAbsent(sql, timer);
+        }
+        return timer;
+    }
+
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return shape.toLowerCase(Locale.ROOT);
+    }
+
+    private static String operation(String shape) {
+        int space = shape.indexOf(' ');
+        return space > 0 ? shape.substring(0, space) : shape;
+    }
+
+    private static Timer timer(String operation, String shape) {
+        return Timer.builder("jpashop.sql")
+                .description("SQL 실행 시간 (SQL 모양별)")
+                .tag("operation", operation)
+                .tag("sql", shape)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidCursorException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 카테고리별 상품 목록 커서 (keyset 페이징, OrderCursor와 같은 방식)
+ * - ITEM_ID: item_id
+ * - PRICE: (itemPrice, item_id)
+ * - 클라이언트에는 Base64로 인코딩한 불투명(opaque) 문자열로만 넘긴다.
+ */
+@Getter
+public class CategoryItemCursor {
+
+    private static final String DELIMITER = "|";
+
+    private final CategoryItemSort sort;
+    private final Integer price;    // sort == PRICE
+    private final Long itemId;
+
+    private CategoryItemCursor(CategoryItemSort sort, Integer price, Long itemId) {
+        this.sort = sort;
+        this.price = price;
+        this.itemId = itemId;
+    }
+
+    public static CategoryItemCursor of(CategoryItemSort sort, int price, Long itemId) {
+        return new CategoryItemCursor(sort, sort == CategoryItemSort.PRICE ? price : null, itemId);
+    }
+
+    public String encode() {
+        String raw = sort + DELIMITER + price + DELIMITER + itemId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CategoryItemCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(DELIMITER);
+            int last = raw.lastIndexOf(DELIMITER);
+            CategoryItemSort sort = CategoryItemSort.valueOf(raw.substring(0, first));
+            String price = raw.substring(first + 1, last);
+            Long itemId = Long.valueOf(raw.substring(last + 1));
+            return new CategoryItemCursor(sort, sort == CategoryItemSort.PRICE ? Integer.valueOf(price) : null, itemId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor, e);
+        }
+    }
+}
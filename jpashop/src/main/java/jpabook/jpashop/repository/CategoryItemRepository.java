@@ -0,0 +1,110 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.CategoryItem;
+import jpabook.jpashop.dto.CategoryItemDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 - 상품 (CategoryItem 인덱스 참고)
+ */
+@Repository
+@RequiredArgsConstructor
+public class CategoryItemRepository {
+
+    private final EntityManager em;
+
+    public void save(CategoryItem categoryItem) {
+        em.persist(categoryItem);
+    }
+
+    public boolean exists(Long categoryId, Long itemId) {
+        return !em.createQuery(
+                "select ci.id from CategoryItem ci where ci.category.id = :categoryId and ci.item.id = :itemId", Long.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("itemId", itemId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * 카테고리 상품 한 페이지 (커서 페이징)
+     * - category_item 인덱스에서 커서 다음 size + 1 건만 읽고, 그 상품들만 item PK로 조인한다.
+     * - 가격은 정렬에 쓴 category_item.item_price => 다음 커서와 값이 어긋나지 않는다.
+     */
+    public CursorSlice<CategoryItemDto> findItemPage(Long categoryId, CategoryItemSearch search) {
+        CategoryItemSort sort = search.getSort();
+        CategoryItemCursor cursor = search.getCategoryItemCursor();
+        int size = search.getPageSize();
+
+        StringBuilder jpql = new StringBuilder(
+                "select new jpabook.jpashop.dto.CategoryItemDto(i.id, i.name, ci.itemPrice)" +
+                        " from CategoryItem ci" +
+                        " join ci.item i" +
+                        " where ci.category.id = :categoryId");
+        if (cursor != null) {
+            jpql.append(sort == CategoryItemSort.PRICE
+                    ? " and (ci.itemPrice > :price or (ci.itemPrice = :price and ci.item.id > :itemId))"
+                    : " and ci.item.id > :itemId");
+        }
+        jpql.append(sort == CategoryItemSort.PRICE
+                ? " order by ci.itemPrice, ci.item.id"
+                : " order by ci.item.id");
+
+        TypedQuery<CategoryItemDto> query = em.createQuery(jpql.toString(), CategoryItemDto.class)
+                .setParameter("categoryId", categoryId);
+        if (cursor != null) {
+            query.setParameter("itemId", cursor.getItemId());
+            if (sort == CategoryItemSort.PRICE) {
+                query.setParameter("price", cursor.getPrice());
+            }
+        }
+        List<CategoryItemDto> rows = query.setMaxResults(size + 1).getResultList();
+        return CursorSlice.of(rows, size, dto -> CategoryItemCursor.of(sort, dto.getPrice(), dto.getItemId()).encode());
+    }
+
+    /**
+     * 카테고리 상품 수 - uk_category_item 인덱스만 읽는다. (엔티티를 올리지 않음)
+     */
+    public long countByCategory(Long categoryId) {
+        return em.createQuery("select count(ci) from CategoryItem ci where ci.category.id = :categoryId", Long.class)
+                .setParameter("categoryId", categoryId)
+                .getSingleResult();
+    }
+
+    /**
+     * 여러 카테고리의 상품 수를 쿼리 1번으로 (상품이 없는 카테고리는 빠진다)
+     */
+    public Map<Long, Long> countByCategories(Collection<Long> categoryIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (categoryIds.isEmpty()) {
+            return counts;
+        }
+        em.createQuery(
+                "select ci.category.id, count(ci) from CategoryItem ci" +
+                        " where ci.category.id in :categoryIds" +
+                        " group by ci.category.id", Object[].class)
+                .setParameter("categoryIds", categoryIds)
+                .getResultList()
+                .forEach(row -> counts.put((Long) row[0], (Long) row[1]));
+        return counts;
+    }
+
+    /**
+     * 상품 가격이 바뀌면 정렬용 복사본도 바꾼다.
+     */
+    public void updateItemPrice(Long itemId, int price) {
+        em.createQuery("update CategoryItem ci set ci.itemPrice = :price where ci.item.id = :itemId")
+                .setParameter("price", price)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,43 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidCursorException;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.StringUtils;
+
+@Getter
+@Setter
+public class CategoryItemSearch {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 1000;
+
+    private CategoryItemSort sort = CategoryItemSort.ITEM_ID;  // 정렬 기준
+    private String cursor;  // 이전 페이지의 마지막 상품 위치 (CategoryItemCursor를 인코딩한 값, 없으면 첫 페이지)
+    private int size = DEFAULT_SIZE;    // 페이지 크기
+
+    /**
+     * 한 번에 너무 많이 조회하지 않도록 페이지 크기를 1 ~ MAX_SIZE 사이로 제한
+     */
+    public int getPageSize() {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    public CategoryItemSort getSort() {
+        return sort != null ? sort : CategoryItemSort.ITEM_ID;
+    }
+
+    /**
+     * 커서는 만들 때의 정렬 기준으로만 이어서 조회할 수 있다.
+     */
+    public CategoryItemCursor getCategoryItemCursor() {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        CategoryItemCursor itemCursor = CategoryItemCursor.decode(cursor);
+        if (itemCursor.getSort() != getSort()) {
+            throw new InvalidCursorException("커서의 정렬 기준이 다릅니다. cursor=" + itemCursor.getSort() + ", sort=" + getSort());
+        }
+        return itemCursor;
+    }
+}
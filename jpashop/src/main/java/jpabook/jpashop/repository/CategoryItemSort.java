@@ -0,0 +1,9 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 카테고리별 상품 목록 정렬 기준 (둘 다 오름차순, 같으면 item_id 오름차순)
+ */
+public enum CategoryItemSort {
+    ITEM_ID,    // 등록순 (uk_category_item)
+    PRICE       // 가격 낮은 순 (idx_category_item_price)
+}
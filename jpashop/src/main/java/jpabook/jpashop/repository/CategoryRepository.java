@@ -0,0 +1,75 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 카테고리 트리 조회는 모두 쿼리 1번 (Category.path 참고)
+ * - parent/child LAZY 연관관계를 따라가면 단계마다, 노드마다 쿼리가 나간다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * 전체 트리 (CategoryTreeCache 스냅샷용) - 깊이 순서 => 부모가 항상 자식보다 먼저 나온다.
+     */
+    public List<Object[]> findAllNodes() {
+        return em.createQuery(
+                "select c.id, c.name, c.parent.id, c.path from Category c order by length(c.path), c.id", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 하위 트리 전체 (자기 자신 포함)
+     */
+    public List<Category> findSubtree(Category category) {
+        return em.createQuery(
+                "select c from Category c where c.id = :id or c.path like :subtreePath order by c.path, c.id", Category.class)
+                .setParameter("id", category.getId())
+                .setParameter("subtreePath", category.getSubtreePath() + "%")
+                .getResultList();
+    }
+
+    /**
+     * 조상 (루트부터 부모까지 순서)
+     */
+    public List<Category> findAncestors(Category category) {
+        List<Long> ancestorIds = Category.pathIds(category.getPath());
+        if (ancestorIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select c from Category c where c.id in :ids order by length(c.path)", Category.class)
+                .setParameter("ids", ancestorIds)
+                .getResultList();
+    }
+
+    /**
+     * 하위 트리 어딘가에 속한 상품 (여러 카테고리에 속해도 한 번만)
+     */
+    public List<Item> findItemsInSubtree(Category category) {
+        return em.createQuery(
+                "select distinct i from CategoryItem ci join ci.item i join ci.category c" +
+                        " where c.id = :id or c.path like :subtreePath" +
+                        " order by i.id", Item.class)
+                .setParameter("id", category.getId())
+                .setParameter("subtreePath", category.getSubtreePath() + "%")
+                .getResultList();
+    }
+}
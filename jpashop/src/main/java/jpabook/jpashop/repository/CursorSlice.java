@@ -0,0 +1,52 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 커서 기반 조회 결과 한 페이지
+ * - 전체 count 쿼리를 날리지 않는다. => 다음 페이지가 있는지만 알면 된다.
+ * - 요청한 size 보다 1건 더 조회해서, 1건이 더 있으면 다음 페이지가 있다고 판단한다.
+ */
+@Getter
+public class CursorSlice<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    private CursorSlice(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param rows     size + 1 건까지 조회한 결과
+     * @param size     페이지 크기
+     * @param cursorOf 마지막 row로 다음 커서를 만드는 함수
+     */
+    public static <T> CursorSlice<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorSlice<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorSlice<>(content, cursorOf.apply(content.get(size - 1)));
+    }
+
+    /**
+     * 내용만 바꾼다. (다음 커서는 그대로)
+     */
+    public <R> CursorSlice<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(content.size());
+        for (T row : content) {
+            mapped.add(mapper.apply(row));
+        }
+        return new CursorSlice<>(mapped, nextCursor);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,17 +1,38 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.cache.EntityCacheLock;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockBucket;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    private static final String NO_QUERY_SPACE = "";  // 네이티브 UPDATE가 2차 캐시를 비우지 않게 (stockUpdate 참고)
+    private static final int IN_CHUNK = 1000;
+
     private final EntityManager em;
+    private final EntityCacheLock entityCacheLock;
 
     public void save(Item item) {
 
@@ -33,10 +54,315 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    /**
+     * 재고 차감 (원자적 조건부 UPDATE)
+     * - 재고가 충분할 때만 차감한다. => 조회 후 차감하는 사이에 다른 주문이 끼어들 틈이 없다.
+     * - 업데이트 된 row가 없으면 재고가 부족한 것
+     * - 벌크 연산이라 영속성 컨텍스트를 거치지 않는다. (엔티티 값은 Item.removeStock()으로 맞춘다)
+     * - 실패하면 DB 재고는 그대로다. (분산 재고 포함)
+     */
+    public void removeStock(Item item, int quantity) {
+
+        if (item.isStockSharded()) {
+            removeBucketStock(item, quantity);
+            return;
+        }
+
+        int updated = stockUpdate(item,
+                "update item set stock_quantity = stock_quantity - :quantity" +
+                        " where item_id = :itemId and stock_quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+
+        if (updated == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+    }
+
+    /**
+     * 여러 상품 재고 차감 (장바구니 주문)
+     * - 상품 id 순서대로 차감한다. => 동시에 여러 장바구니가 같은 상품들을 주문해도 row 락을 같은 순서로 잡기 때문에 데드락이 나지 않는다.
+     * - 조건부 UPDATE를 JDBC batch 한 번으로 보내고, row 별 업데이트 건수로 재고 부족을 확인한다. => 상품 수가 늘어도 DB 왕복은 1번
+     * - 분산 재고 상품은 버킷 단위로 따로 차감한다.
+     *
+     * @param counts 상품 id 순으로 정렬된 (상품, 수량)
+     */
+    public void removeStocks(SortedMap<Item, Integer> counts) {
+
+        List<Map.Entry<Item, Integer>> singleRows = new ArrayList<>();
+        for (Map.Entry<Item, Integer> entry : counts.entrySet()) {
+            if (entry.getKey().isStockSharded()) {
+                removeBucketStock(entry.getKey(), entry.getValue());
+            } else {
+                singleRows.add(entry);
+            }
+        }
+        if (singleRows.isEmpty()) {
+            return;
+        }
+
+        singleRows.forEach(entry -> {
+            lockCachedItem(entry.getKey());
+            flushIfNotInserted(entry.getKey());    // JDBC로 직접 실행하기 전에 아직 INSERT 안 된 상품만 먼저 반영
+        });
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "update item set stock_quantity = stock_quantity - ? where item_id = ? and stock_quantity >= ?")) {
+                for (Map.Entry<Item, Integer> entry : singleRows) {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey().getId());
+                    ps.setInt(3, entry.getValue());
+                    ps.addBatch();
+                }
+                for (int updated : ps.executeBatch()) {
+                    if (updated == 0) {
+                        throw new NotEnoughStockException("need more stock");
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 재고 증가 (원자적 UPDATE)
+     */
+    public void addStock(Item item, int quantity) {
+
+        if (item.isStockSharded()) {
+            increaseBucketStock(item.getId(), randomBucket(item), quantity);  // 더하는 건 실패할 일이 없으니 아무 버킷에나 넣는다.
+            return;
+        }
+
+        stockUpdate(item, "update item set stock_quantity = stock_quantity + :quantity where item_id = :itemId")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * 재고 수량 변경 (상품 수정 화면에서 재고를 직접 지정할 때)
+     */
+    public void changeStock(Item item, int stockQuantity) {
+
+        if (item.isStockSharded()) {
+            int bucketCount = item.getStockBucketCount();
+            for (int bucketNo = 0; bucketNo < bucketCount; bucketNo++) {
+                em.createQuery("update ItemStockBucket b set b.stockQuantity = :stockQuantity" +
+                                " where b.item.id = :itemId and b.bucketNo = :bucketNo")
+                        .setParameter("stockQuantity", bucketShare(stockQuantity, bucketCount, bucketNo))
+                        .setParameter("itemId", item.getId())
+                        .setParameter("bucketNo", bucketNo)
+                        .executeUpdate();
+            }
+            return;
+        }
+
+        changeStockColumn(item, stockQuantity);
+    }
+
+    /**
+     * 분산 재고 모드로 전환
+     * - 현재 재고를 bucketCount 개의 버킷 row로 나눠 담는다.
+     * - 전환하는 동안 재고가 바뀌지 않도록 item row에 락을 걸고 최신 재고를 다시 읽는다.
+     */
+    public void shardStock(Item item, int bucketCount) {
+
+        if (item.isStockSharded()) {
+            throw new IllegalStateException("이미 분산 재고 상품입니다.");
+        }
+        em.refresh(item, LockModeType.PESSIMISTIC_WRITE);
+        int stockQuantity = item.getStockQuantity();
+
+        for (int bucketNo = 0; bucketNo < bucketCount; bucketNo++) {
+            em.persist(ItemStockBucket.createBucket(item, bucketNo, bucketShare(stockQuantity, bucketCount, bucketNo)));
+        }
+        item.setStockBucketCount(bucketCount);
+        item.setStockQuantity(0);
+        changeStockColumn(item, 0);
+    }
+
+    /**
+     * 분산 재고 차감
+     * 1. 임의로 고른 버킷 하나에서 조건부 차감 (대부분 여기서 끝남)
+     * 2. 고른 버킷에 재고가 모자랄 때만 다른 버킷들에서 남은 만큼 빌려온다.
+     *    - 버킷마다 조건부 UPDATE라 초과 판매는 일어나지 않는다.
+     *    - 읽은 뒤에 다른 주문이 그 버킷에서 먼저 가져가면 UPDATE가 실패한다. => 그 버킷을 다시 읽어서 성공하거나 0이 될 때까지 반복
+     *      (건너뛰면 전체 재고가 충분한데도 재고 부족이 난다)
+     *    - 끝까지 못 채우면 빌려온 재고를 그 버킷에 돌려놓고 예외
+     *      => 롤백에 기대지 않는다. 재고 부족에 롤백하지 않는 주문 접수 배치(OrderService.orderInBatch)에서도 차감이 남지 않는다.
+     */
+    private void removeBucketStock(Item item, int quantity) {
+
+        int bucketCount = item.getStockBucketCount();
+        int start = randomBucket(item);
+        if (decreaseBucketStock(item.getId(), start, quantity) == 1) {
+            return;
+        }
+
+        int remaining = quantity;
+        int[] taken = new int[bucketCount];
+        for (int i = 0; i < bucketCount && remaining > 0; i++) {
+            int bucketNo = (start + i) % bucketCount;
+            int take;
+            while (remaining > 0 && (take = Math.min(findBucketStock(item.getId(), bucketNo), remaining)) > 0) {
+                if (decreaseBucketStock(item.getId(), bucketNo, take) == 1) {
+                    taken[bucketNo] += take;
+                    remaining -= take;
+                }
+            }
+        }
+
+        if (remaining > 0) {
+            for (int bucketNo = 0; bucketNo < bucketCount; bucketNo++) {
+                if (taken[bucketNo] > 0) {
+                    increaseBucketStock(item.getId(), bucketNo, taken[bucketNo]);
+                }
+            }
+            throw new NotEnoughStockException("need more stock");
+        }
+    }
+
+    private int decreaseBucketStock(Long itemId, int bucketNo, int quantity) {
+        return em.createQuery(
+                "update ItemStockBucket b set b.stockQuantity = b.stockQuantity - :quantity" +
+                        " where b.item.id = :itemId and b.bucketNo = :bucketNo and b.stockQuantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("bucketNo", bucketNo)
+                .executeUpdate();
+    }
+
+    private void increaseBucketStock(Long itemId, int bucketNo, int quantity) {
+        em.createQuery("update ItemStockBucket b set b.stockQuantity = b.stockQuantity + :quantity" +
+                        " where b.item.id = :itemId and b.bucketNo = :bucketNo")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("bucketNo", bucketNo)
+                .executeUpdate();
+    }
+
+    private int findBucketStock(Long itemId, int bucketNo) {
+        return em.createQuery(
+                "select b.stockQuantity from ItemStockBucket b where b.item.id = :itemId and b.bucketNo = :bucketNo", Integer.class)
+                .setParameter("itemId", itemId)
+                .setParameter("bucketNo", bucketNo)
+                .getSingleResult();
+    }
+
+    private void changeStockColumn(Item item, int stockQuantity) {
+        stockUpdate(item, "update item set stock_quantity = :stockQuantity where item_id = :itemId")
+                .setParameter("stockQuantity", stockQuantity)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * item 테이블 재고 UPDATE (네이티브 SQL)
+     * - JPQL 벌크 UPDATE(update Item i ...)를 실행하면 하이버네이트가 Item 2차 캐시 영역 전체를 비운다. => 주문 1건에 모든 상품 캐시가 날아감
+     * - 네이티브 SQL에 어떤 테이블과도 맞지 않는 query space를 주면 하이버네이트는 캐시를 건드리지 않는다.
+     *      => 대신 바뀌는 상품 엔트리 하나만 lockCachedItem()으로 잠근다.
+     * - 네이티브 SQL은 자동 flush 대상이 아니다. => 같은 트랜잭션에서 방금 persist한 상품이면 INSERT를 먼저 반영한다.
+     */
+    private NativeQuery<?> stockUpdate(Item item, String sql) {
+        lockCachedItem(item);
+        flushIfNotInserted(item);
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(NO_QUERY_SPACE);
+    }
+
+    /**
+     * 2차 캐시의 상품 엔트리를 트랜잭션이 끝날 때까지 잠근다. (하이버네이트가 엔티티를 UPDATE 할 때 하는 것과 같다)
+     */
+    private void lockCachedItem(Item item) {
+        entityCacheLock.lockUntilCompletion(Item.class, item.getId(), item.getVersion());
+    }
+
+    /**
+     * 상품 row가 아직 DB에 없을 때만 flush (persist 후 INSERT가 쓰기 지연 중인 경우)
+     * - 매번 flush하면 주문 접수 배치처럼 한 트랜잭션에서 주문을 여러 건 넣을 때
+     *   주문/주문상품/배송 INSERT가 재고 UPDATE마다 끊겨서 JDBC batch로 묶이지 않는다.
+     * - 이미 있는 상품의 재고 UPDATE는 다른 쓰기 지연 SQL과 순서가 상관없다. (stock_quantity는 엔티티에서 UPDATE 하지 않는 컬럼)
+     */
+    private void flushIfNotInserted(Item item) {
+        EntityEntry entry = em.unwrap(SessionImplementor.class).getPersistenceContext().getEntry(item);
+        if (entry != null && !entry.isExistsInDatabase()) {
+            em.flush();
+        }
+    }
+
+    private int randomBucket(Item item) {
+        return ThreadLocalRandom.current().nextInt(item.getStockBucketCount());
+    }
+
+    /**
+     * 재고를 버킷 수로 나눈 몫, 나머지는 앞 버킷부터 1개씩
+     */
+    private static int bucketShare(int stockQuantity, int bucketCount, int bucketNo) {
+        return stockQuantity / bucketCount + (bucketNo < stockQuantity % bucketCount ? 1 : 0);
+    }
+
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Item> findAll() {
         // 여러개 찾는 것은 JPQL 작성해야함
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
     }
 
+    /**
+     * 상품 카탈로그 스냅샷(ItemCatalog)용 row - [id, name, price, 재고, dtype]
+     * - 엔티티가 아니라 값만 읽는다. => 영속성 컨텍스트에 아무것도 올리지 않고, 커밋 직후에 읽어도 1차 캐시의 옛날 값을 보지 않는다.
+     * - 분산 재고 상품은 버킷 합계를 재고로 (버킷 합계 쿼리 1번 더)
+     * - IN 목록은 IN_CHUNK 개씩 나눠서 조회한다. (주문 접수 배치처럼 한 번에 많은 상품이 바뀐 경우)
+     * @param itemIds null이면 전체, 순서대로 주면 결과도 id 순
+     */
+    public List<Object[]> findCatalogRows(Collection<Long> itemIds) {
+        if (itemIds == null) {
+            return findCatalogRowsIn(null);
+        }
+        List<Long> all = new ArrayList<>(itemIds);
+        List<Object[]> rows = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += IN_CHUNK) {
+            rows.addAll(findCatalogRowsIn(all.subList(from, Math.min(from + IN_CHUNK, all.size()))));
+        }
+        return rows;
+    }
+
+    private List<Object[]> findCatalogRowsIn(Collection<Long> itemIds) {
+        String where = itemIds == null ? "" : " where item_id in (:itemIds)";
+        Query itemQuery = em.createNativeQuery(
+                "select item_id, name, price, stock_quantity, stock_bucket_count, dtype from item" + where + " order by item_id");
+        Query bucketQuery = em.createNativeQuery(
+                "select item_id, sum(stock_quantity) from item_stock_bucket" + where + " group by item_id");
+        if (itemIds != null) {
+            itemQuery.setParameter("itemIds", itemIds);
+            bucketQuery.setParameter("itemIds", itemIds);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> items = itemQuery.getResultList();
+        Map<Long, Integer> bucketStocks = new HashMap<>();
+        if (items.stream().anyMatch(row -> ((Number) row[4]).intValue() > 0)) {
+            @SuppressWarnings("unchecked")
+            List<Object[]> buckets = bucketQuery.getResultList();
+            buckets.forEach(row -> bucketStocks.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue()));
+        }
+
+        List<Object[]> rows = new ArrayList<>(items.size());
+        for (Object[] item : items) {
+            long id = ((Number) item[0]).longValue();
+            int stockQuantity = ((Number) item[4]).intValue() > 0
+                    ? bucketStocks.getOrDefault(id, 0)
+                    : ((Number) item[3]).intValue();
+            rows.add(new Object[]{id, item[1], ((Number) item[2]).intValue(), stockQuantity, item[5].toString().charAt(0)});
+        }
+        return rows;
+    }
+
 }
@@ -2,11 +2,19 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository // + JPA 예외를 스프링 기반 예외로 예외 변환
 @RequiredArgsConstructor
@@ -16,6 +24,8 @@ public class MemberRepository {
 
     private final EntityManager em; // 스프링 데이터 JPA를 사용하면 EntityManager도 주입 가능
 
+    private static final int IN_CHUNK = 1000;
+
     /**
      * 스프링이 엔티티메니저를 만들어서 주입해줌
      */
@@ -68,4 +78,94 @@ public class MemberRepository {
                 .getResultList();
                 // 파라미터를 바인딩
     }
+
+    /**
+     * 이름이 있는지만 확인 => 엔티티 리스트를 만들지 않고 id 1개만 가져온다. (uk_member_name 인덱스만 탄다)
+     */
+    public boolean existsByName(String name) {
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * names 중에 이미 가입된 이름만 돌려준다. (일괄 가입 중복 검사)
+     * - IN 목록이 너무 길면 DB마다 제한이 있고 실행 계획 캐시도 쓸모가 없어져서 IN_CHUNK 개씩 나눠서 조회한다.
+     */
+    public List<String> findExistingNames(Collection<String> names) {
+
+        List<String> all = new ArrayList<>(names);
+        List<String> existing = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK) {
+            existing.addAll(em.createQuery("select m.name from Member m where m.name in :names", String.class)
+                    .setParameter("names", all.subList(from, Math.min(from + IN_CHUNK, all.size())))
+                    .getResultList());
+        }
+        return existing;
+    }
+
+    /**
+     * 일괄 저장 (일괄 가입)
+     * - 이 세션만 JDBC batch 크기를 batchSize로 올려서 INSERT를 묶어 보낸다. (id는 pooled 시퀀스라 persist 때 INSERT가 나가지 않음)
+     * - batchSize 건마다 flush + clear => 영속성 컨텍스트가 커지지 않게
+     * - unique 제약 위반은 flush 시점에 DataIntegrityViolationException
+     */
+    public void saveAll(List<Member> members, int batchSize) {
+
+        Session session = em.unwrap(Session.class);
+        Integer previous = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            for (int i = 0; i < members.size(); i++) {
+                em.persist(members.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+        } finally {
+            session.setJdbcBatchSize(previous);
+        }
+    }
+
+    /**
+     * 저장하고 바로 flush => unique 제약 위반을 커밋 시점이 아니라 여기서 터뜨린다.
+     * (@Repository 예외 변환으로 DataIntegrityViolationException이 된다)
+     */
+    public void saveAndFlush(Member member) {
+        em.persist(member);
+        em.flush();
+    }
+
+    /**
+     * 변경감지 UPDATE를 바로 flush => 이름 변경의 unique 제약 위반도 여기서 터뜨린다.
+     */
+    public void flush() {
+        em.flush();
+    }
+
+    /**
+     * 전체 회원 이름을 커서로 읽는다. (MemberNameFilter 만들 때)
+     * - 이름만 조회하고 FORWARD_ONLY scroll => 회원 수와 상관없이 메모리 사용량이 일정
+     */
+    @Transactional(readOnly = true)
+    public void forEachName(Consumer<String> consumer) {
+
+        ScrollableResults results = em.createQuery("select m.name from Member m", String.class)
+                .unwrap(Query.class)
+                .setFetchSize(1000)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((String) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.exception.InvalidCursorException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 주문 목록 커서 (keyset 페이징)
+ * - (정렬 기준 값, order_id) 조합으로 "마지막으로 본 주문"의 위치를 기억한다.
+ *      - ORDER_DATE: (orderDate, order_id)
+ *      - TOTAL_PRICE: (totalPrice, order_id)
+ * - 클라이언트에는 Base64로 인코딩한 불투명(opaque) 문자열로만 넘긴다. => 내부 키 구조가 API 스펙이 되지 않도록
+ *
+ * OFFSET 페이징은 앞의 row를 다 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+ * => 커서 이후의 row만 인덱스로 바로 찾아가기 때문에 몇 번째 페이지든 조회 비용이 같다.
+ */
+@Getter
+public class OrderCursor {
+
+    private static final String DELIMITER = "|";
+
+    private final OrderSort sort;
+    private final LocalDateTime orderDate;  // sort == ORDER_DATE
+    private final Integer totalPrice;       // sort == TOTAL_PRICE
+    private final Long orderId;
+
+    private OrderCursor(OrderSort sort, LocalDateTime orderDate, Integer totalPrice, Long orderId) {
+        this.sort = sort;
+        this.orderDate = orderDate;
+        this.totalPrice = totalPrice;
+        this.orderId = orderId;
+    }
+
+    public static OrderCursor of(Order order) {
+        return of(OrderSort.ORDER_DATE, order);
+    }
+
+    public static OrderCursor of(OrderSort sort, Order order) {
+        return of(sort, order.getOrderDate(), order.getTotalPrice(), order.getId());
+    }
+
+    public static OrderCursor of(OrderSort sort, LocalDateTime orderDate, int totalPrice, Long orderId) {
+        return sort == OrderSort.TOTAL_PRICE
+                ? new OrderCursor(sort, null, totalPrice, orderId)
+                : new OrderCursor(sort, orderDate, null, orderId);
+    }
+
+    public String encode() {
+        Object key = sort == OrderSort.TOTAL_PRICE ? totalPrice : orderDate;
+        String raw = sort + DELIMITER + key + DELIMITER + orderId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(DELIMITER);
+            int last = raw.lastIndexOf(DELIMITER);
+            OrderSort sort = OrderSort.valueOf(raw.substring(0, first));
+            String key = raw.substring(first + 1, last);
+            Long orderId = Long.valueOf(raw.substring(last + 1));
+            return sort == OrderSort.TOTAL_PRICE
+                    ? new OrderCursor(sort, null, Integer.valueOf(key), orderId)
+                    : new OrderCursor(sort, LocalDateTime.parse(key), null, orderId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor, e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.util.StringUtils;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,42 +48,30 @@ public class OrderRepository {
          * 동적 쿼리 ->
          * JPQL을 문자로 생성하는 것은 번거롭고 실수로 인한 버그가 발생할 수 있음
          */
-        String jpql = "select o from Order o join o.member m";
-        boolean isFirstCondition = true;
-
-        //주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status";
-        }
-
-        //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name";
-        }
-
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000);
+        return createSearchQuery("select o from Order o join o.member m", orderSearch)
+                .setMaxResults(orderSearch.getPageSize())
+                .getResultList();
+    }
 
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
-        }
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
-        }
+    /**
+     * 커서 기반 페이징 + fetch join
+     * - (orderDate, order_id) 순서로 정렬하고, 커서 이후의 주문만 조회한다. (keyset 페이징)
+     * - 다음 페이지 여부를 알기 위해 size + 1 건을 조회한다.
+     * - ToOne 관계(member, delivery)는 fetch join 해도 row 수가 늘어나지 않으므로 페이징에 문제 없음
+     */
+    public CursorSlice<Order> findAllWithMemberDelivery(OrderSearch orderSearch) {
+        int size = orderSearch.getPageSize();
+        List<Order> orders = createSearchQuery(
+                "select o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d", orderSearch)
+                .setMaxResults(size + 1)
+                .getResultList();
+        return CursorSlice.of(orders, size, o -> OrderCursor.of(orderSearch.getSort(), o).encode());
+    }
 
-        return query.getResultList();
+    private TypedQuery<Order> createSearchQuery(String selectFrom, OrderSearch orderSearch) {
+        return OrderSearchJpql.createQuery(em, selectFrom, orderSearch, Order.class);
     }
 
     /**
@@ -111,8 +100,33 @@ public class OrderRepository {
             criteria.add(name);
         }
 
+        //주문 금액 검색
+        if (orderSearch.getMinTotalPrice() != null) {
+            criteria.add(cb.greaterThanOrEqualTo(o.<Integer>get("totalPrice"), orderSearch.getMinTotalPrice()));
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            criteria.add(cb.lessThanOrEqualTo(o.<Integer>get("totalPrice"), orderSearch.getMaxTotalPrice()));
+        }
+
+        //커서 이후
+        boolean byTotalPrice = orderSearch.getSort() == OrderSort.TOTAL_PRICE;
+        OrderCursor cursor = orderSearch.getOrderCursor();
+        if (cursor != null) {
+            Predicate after = byTotalPrice
+                    ? cb.or(
+                        cb.lessThan(o.<Integer>get("totalPrice"), cursor.getTotalPrice()),
+                        cb.and(cb.equal(o.<Integer>get("totalPrice"), cursor.getTotalPrice()),
+                                cb.lessThan(o.<Long>get("id"), cursor.getOrderId())))
+                    : cb.or(
+                        cb.lessThan(o.<LocalDateTime>get("orderDate"), cursor.getOrderDate()),
+                        cb.and(cb.equal(o.<LocalDateTime>get("orderDate"), cursor.getOrderDate()),
+                                cb.lessThan(o.<Long>get("id"), cursor.getOrderId())));
+            criteria.add(after);
+        }
+
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
+        cq.orderBy(cb.desc(o.get(byTotalPrice ? "totalPrice" : "orderDate")), cb.desc(o.get("id")));
+        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(orderSearch.getPageSize());
         return query.getResultList();
     }
 
@@ -1,19 +1,52 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.exception.InvalidCursorException;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.util.StringUtils;
 
 @Getter
 @Setter
 public class OrderSearch {
 
+    public static final int DEFAULT_SIZE = 100;
+    public static final int MAX_SIZE = 1000;
+
     private String memberName;  // 회원 이름
     private OrderStatus orderStatus;    // 주문 상태[ORDER, CANCLE]
+    private Integer minTotalPrice;  // 주문 금액 이상
+    private Integer maxTotalPrice;  // 주문 금액 이하
     /**
      * 이 파라미터 조건이 있으면, where문으로 검색이 되어야함
      */
 
+    private OrderSort sort = OrderSort.ORDER_DATE;  // 정렬 기준
+    private String cursor;  // 이전 페이지의 마지막 주문 위치 (OrderCursor를 인코딩한 값, 없으면 첫 페이지)
+    private int size = DEFAULT_SIZE;    // 페이지 크기
+
+    /**
+     * 한 번에 너무 많이 조회하지 않도록 페이지 크기를 1 ~ MAX_SIZE 사이로 제한
+     */
+    public int getPageSize() {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
 
+    public OrderSort getSort() {
+        return sort != null ? sort : OrderSort.ORDER_DATE;
+    }
 
+    /**
+     * 커서는 만들 때의 정렬 기준으로만 이어서 조회할 수 있다.
+     */
+    public OrderCursor getOrderCursor() {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        OrderCursor orderCursor = OrderCursor.decode(cursor);
+        if (orderCursor.getSort() != getSort()) {
+            throw new InvalidCursorException("커서의 정렬 기준이 다릅니다. cursor=" + orderCursor.getSort() + ", sort=" + getSort());
+        }
+        return orderCursor;
+    }
 }
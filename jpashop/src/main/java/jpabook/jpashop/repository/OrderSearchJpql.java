@@ -0,0 +1,85 @@
+package jpabook.jpashop.repository;
+
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * OrderSearch 조건 => JPQL where, order by
+ * - 엔티티 조회(OrderRepository)와 DTO 조회(OrderSimpleQueryRepository)가 같은 검색 조건, 정렬, 커서를 쓰도록 한 곳에서 만든다.
+ * - 별칭은 o(Order), m(Member)로 맞춰야 한다.
+ * - 금액 조건/정렬은 orders.total_price 컬럼만 본다. => order_item을 조인하지 않는다.
+ */
+public final class OrderSearchJpql {
+
+    private OrderSearchJpql() {
+    }
+
+    public static <T> TypedQuery<T> createQuery(EntityManager em, String selectFrom, OrderSearch orderSearch, Class<T> resultClass) {
+        String jpql = selectFrom;
+        boolean isFirstCondition = true;
+        OrderCursor cursor = orderSearch.getOrderCursor();
+        boolean byTotalPrice = orderSearch.getSort() == OrderSort.TOTAL_PRICE;
+
+        //주문 상태 검색
+        if (orderSearch.getOrderStatus() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " o.status = :status";
+        }
+
+        //회원 이름 검색
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " m.name like :name";
+        }
+
+        //주문 금액 검색
+        if (orderSearch.getMinTotalPrice() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " o.totalPrice >= :minTotalPrice";
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " o.totalPrice <= :maxTotalPrice";
+        }
+
+        //커서 이후 (이전 페이지 마지막 주문보다 정렬 순서상 뒤에 있는 주문)
+        if (cursor != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += byTotalPrice
+                    ? " (o.totalPrice < :cursorKey or (o.totalPrice = :cursorKey and o.id < :cursorId))"
+                    : " (o.orderDate < :cursorKey or (o.orderDate = :cursorKey and o.id < :cursorId))";
+        }
+
+        // 정렬 기준이 없으면 페이지 경계가 매번 달라진다 => 유니크한 id까지 정렬 조건에 포함
+        jpql += byTotalPrice
+                ? " order by o.totalPrice desc, o.id desc"
+                : " order by o.orderDate desc, o.id desc";
+
+        TypedQuery<T> query = em.createQuery(jpql, resultClass);
+
+        if (orderSearch.getOrderStatus() != null) {
+            query = query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query = query.setParameter("name", orderSearch.getMemberName());
+        }
+        if (orderSearch.getMinTotalPrice() != null) {
+            query = query.setParameter("minTotalPrice", orderSearch.getMinTotalPrice());
+        }
+        if (orderSearch.getMaxTotalPrice() != null) {
+            query = query.setParameter("maxTotalPrice", orderSearch.getMaxTotalPrice());
+        }
+        if (cursor != null) {
+            query = query.setParameter("cursorKey", byTotalPrice ? cursor.getTotalPrice() : cursor.getOrderDate())
+                    .setParameter("cursorId", cursor.getOrderId());
+        }
+        return query;
+    }
+}
@@ -0,0 +1,9 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 목록 정렬 기준 (둘 다 내림차순, 같으면 order_id 내림차순)
+ */
+public enum OrderSort {
+    ORDER_DATE,     // 최근 주문순 (idx_orders_order_date_id)
+    TOTAL_PRICE     // 주문 금액 큰 순 (idx_orders_total_price_id)
+}
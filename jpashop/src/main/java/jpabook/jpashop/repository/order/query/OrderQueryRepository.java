@@ -0,0 +1,44 @@
+package jpabook.jpashop.repository.order.query;
+
+import static java.util.stream.Collectors.groupingBy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderQueryRepository {
+
+    private final EntityManager em;
+
+    /**
+     * 여러 주문의 주문상품을 한 번에 조회 (컬렉션 조회 최적화)
+     * - 주문마다 orderItems -> item 을 지연 로딩하면 1 + N + M 번 쿼리가 나간다.
+     * - 주문 id들을 IN 절로 넘겨서 주문상품 + 상품을 쿼리 1번에 가져온 다음, 메모리에서 주문 id로 묶는다.
+     * - OrderItem -> Item 은 ToOne 관계라서 join 해도 row 수가 늘어나지 않는다.
+     *
+     * 루트(주문)를 먼저 페이징해서 가져오고 컬렉션은 이렇게 따로 가져오기 때문에 페이징 결과가 틀어지지 않는다.
+     * (컬렉션을 fetch join 하면 row가 뻥튀기 돼서 DB에서 페이징을 할 수 없다)
+     */
+    public Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<OrderItemQueryDto> orderItems = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                    " from OrderItem oi" +
+                    " join oi.item i" +
+                    " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+            .setParameter("orderIds", orderIds)
+            .getResultList();
+
+        return orderItems.stream()
+            .collect(groupingBy(OrderItemQueryDto::getOrderId));
+    }
+}
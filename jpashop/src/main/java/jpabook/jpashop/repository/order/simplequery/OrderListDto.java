@@ -0,0 +1,36 @@
+package jpabook.jpashop.repository.order.simplequery;
+
+import java.time.LocalDateTime;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+/**
+ * 주문 목록 화면 (order/orderList.html) 한 줄
+ * - 화면에 보여주는 값만 담는다. => 템플릿이 엔티티 그래프를 LAZY 로딩으로 타고 다니지 않는다.
+ */
+@Data
+public class OrderListDto {
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long orderId;
+    private String memberName;
+    private OrderStatus orderStatus;
+    private LocalDateTime orderDate;
+
+    // 대표상품 (첫 번째 주문상품)
+    private String itemName;
+    private int orderPrice;
+    private int count;
+
+
+    public OrderListDto(OrderSimpleQueryDto order, String itemName, int orderPrice, int count) {
+        this.orderId = order.getOrderId();
+        this.memberName = order.getName();
+        this.orderStatus = order.getOrderStatus();
+        this.orderDate = order.getOrderDate();
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+    }
+}
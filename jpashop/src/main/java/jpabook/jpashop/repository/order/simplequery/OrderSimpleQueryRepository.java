@@ -1,9 +1,21 @@
 package jpabook.jpashop.repository.order.simplequery;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchJpql;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 @RequiredArgsConstructor
@@ -15,6 +27,12 @@ public class OrderSimpleQueryRepository {
      * - 이런 식으로 복잡한 조인 쿼리를 가지고 Dto를 뽑아야 하는 경우 QueryService, QueryRepository 이렇게 해서 보통 별도로 뽑아 낸다.
      */
 
+    private static final String ORDER_DTO_JPQL =
+        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address, o.totalPrice)" +
+            " from Order o" +
+            " join o.member m" +
+            " join o.delivery d";
+
     private final EntityManager em;
 
     public List<OrderSimpleQueryDto> findOrderDtos() {
@@ -23,12 +41,79 @@ public class OrderSimpleQueryRepository {
         // 결과적으로 API 스펙이 여기에 들어와 있는 형식이다.
         // repository는 엔티티의 객체 그래프를 조회하고 이럴 때 사용한다. (물리적으로는 계층이 나눠져 있지만, 논리적으로 계층이 깨져있음)
         // => repository가 화면을 의존하고 있다. API 스펙이 바뀌면 이 reposiotry 계층을 고쳐야 한다.
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                    " from Order o" +
-                    " join o.member m" +
-                    " join o.delivery d", OrderSimpleQueryDto.class)
+        return em.createQuery(ORDER_DTO_JPQL, OrderSimpleQueryDto.class)
             .getResultList();
     }
 
+    /**
+     * 검색 조건 + 커서 페이징 DTO 조회
+     * - 금액 검색/정렬은 orders.total_price 컬럼으로 => order_item을 읽지 않는다.
+     */
+    public CursorSlice<OrderSimpleQueryDto> findOrderDtos(OrderSearch orderSearch) {
+        int size = orderSearch.getPageSize();
+        List<OrderSimpleQueryDto> rows = OrderSearchJpql.createQuery(em, ORDER_DTO_JPQL, orderSearch, OrderSimpleQueryDto.class)
+            .setMaxResults(size + 1)
+            .getResultList();
+        return CursorSlice.of(rows, size, dto -> OrderCursor.of(orderSearch.getSort(),
+            dto.getOrderDate(), dto.getTotalPrice(), dto.getOrderId()).encode());
+    }
+
+    /**
+     * 주문 목록 화면 (/orders) - 주문 한 페이지 + 주문마다 대표상품(첫 번째 주문상품)
+     * - 쿼리 2번: 주문 DTO 페이지 + 그 주문들의 주문상품 IN 조회 => 화면을 그리면서 LAZY 로딩이 일어나지 않는다.
+     * - 첫 번째 주문상품 = id가 가장 작은 주문상품 (주문에 추가한 순서)
+     */
+    public CursorSlice<OrderListDto> findOrderListDtos(OrderSearch orderSearch) {
+        CursorSlice<OrderSimpleQueryDto> orders = findOrderDtos(orderSearch);
+        List<Long> orderIds = orders.getContent().stream()
+            .map(OrderSimpleQueryDto::getOrderId)
+            .collect(Collectors.toList());
+
+        Map<Long, Object[]> firstItems = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            em.createQuery(
+                    "select oi.order.id, i.name, oi.orderPrice, oi.count" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds" +
+                        " order by oi.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList()
+                .forEach(row -> firstItems.putIfAbsent((Long) row[0], row));
+        }
+
+        return orders.map(order -> {
+            Object[] item = firstItems.get(order.getOrderId());
+            return item == null
+                ? new OrderListDto(order, null, 0, 0)
+                : new OrderListDto(order, (String) item[1], (Integer) item[2], (Integer) item[3]);
+        });
+    }
+
+    /**
+     * 전체 주문 DTO를 한 건씩 흘려보낸다. (스트리밍)
+     * - getResultList()는 결과 전체를 List로 메모리에 올린다. => 주문이 많으면 힙이 터짐
+     * - 하이버네이트 scroll(FORWARD_ONLY)로 커서를 앞으로만 읽으면서 fetchSize 만큼씩만 JDBC로 가져온다.
+     * - DTO 조회라서 영속성 컨텍스트에 엔티티가 쌓이지 않는다. => 건수와 상관없이 메모리 사용량이 일정
+     *
+     * 커서를 읽는 동안 커넥션이 열려 있어야 하기 때문에 트랜잭션 안에서 끝까지 소비해야 한다.
+     * (MySQL 드라이버는 fetchSize를 Integer.MIN_VALUE로 줘야 실제로 스트리밍 된다)
+     */
+    @Transactional(readOnly = true)
+    public void streamOrderDtos(int fetchSize, Consumer<OrderSimpleQueryDto> consumer) {
+
+        ScrollableResults results = em.createQuery(ORDER_DTO_JPQL, OrderSimpleQueryDto.class)
+            .unwrap(Query.class)
+            .setFetchSize(fetchSize)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((OrderSimpleQueryDto) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
 }
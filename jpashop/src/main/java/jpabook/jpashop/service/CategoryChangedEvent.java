@@ -0,0 +1,17 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 카테고리가 생겼다. (CategoryService가 발행)
+ * - 받는 쪽은 @TransactionalEventListener로 커밋된 다음에 처리한다. => 롤백된 변경은 알리지 않는다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+}
@@ -0,0 +1,128 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.cache.CategoryTree;
+import jpabook.jpashop.cache.CategoryTreeCache;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.CategoryItem;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.dto.CategoryItemDto;
+import jpabook.jpashop.repository.CategoryItemRepository;
+import jpabook.jpashop.repository.CategoryItemSearch;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+    private final CategoryItemRepository categoryItemRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ApplicationEventPublisher eventPublisher;   // 카테고리 추가 => CategoryChangedEvent (트리 스냅샷 교체)
+
+    /**
+     * 카테고리 추가
+     * @param parentId 최상위면 null
+     */
+    @Transactional
+    public Long addCategory(String name, Long parentId) {
+
+        Category category = new Category();
+        category.setName(name);
+        if (parentId != null) {
+            Category parent = categoryRepository.findOne(parentId);
+            if (parent == null) {
+                throw new IllegalArgumentException("존재하지 않는 카테고리입니다. id=" + parentId);
+            }
+            parent.addChildCategory(category);
+        }
+        categoryRepository.save(category);
+
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId()));
+        return category.getId();
+    }
+
+    /**
+     * 상품을 카테고리에 넣는다. (이미 들어 있으면 그대로)
+     */
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        if (categoryItemRepository.exists(categoryId, itemId)) {
+            return;
+        }
+        Category category = findExisting(categoryId);
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. id=" + itemId);
+        }
+        categoryItemRepository.save(CategoryItem.createCategoryItem(category, item));
+    }
+
+    public Category findOne(Long categoryId) {
+        return categoryRepository.findOne(categoryId);
+    }
+
+    public List<Category> findSubtree(Long categoryId) {
+        return categoryRepository.findSubtree(findExisting(categoryId));
+    }
+
+    public List<Category> findAncestors(Long categoryId) {
+        return categoryRepository.findAncestors(findExisting(categoryId));
+    }
+
+    /**
+     * 카테고리와 그 하위 카테고리 어딘가에 속한 상품
+     */
+    public List<Item> findItemsInSubtree(Long categoryId) {
+        return categoryRepository.findItemsInSubtree(findExisting(categoryId));
+    }
+
+    /**
+     * 카테고리 상품 한 페이지 (정렬 + 커서 페이징)
+     */
+    public CursorSlice<CategoryItemDto> findItemPage(Long categoryId, CategoryItemSearch search) {
+        return categoryItemRepository.findItemPage(categoryId, search);
+    }
+
+    public long countItems(Long categoryId) {
+        return categoryItemRepository.countByCategory(categoryId);
+    }
+
+    /**
+     * 바로 아래 카테고리별 상품 수 (상품이 없으면 0) - 자식 목록은 트리 스냅샷에서, 개수는 쿼리 1번
+     */
+    public Map<Long, Long> countItemsOfChildren(Long categoryId) {
+        CategoryTree.Node node = categoryTreeCache.get().get(categoryId);
+        if (node == null) {
+            return Collections.emptyMap();
+        }
+        List<Long> childIds = node.getChildren().stream()
+                .map(CategoryTree.Node::getId)
+                .collect(Collectors.toList());
+        Map<Long, Long> counts = categoryItemRepository.countByCategories(childIds);
+        Map<Long, Long> result = new LinkedHashMap<>();
+        childIds.forEach(id -> result.put(id, counts.getOrDefault(id, 0L)));
+        return result;
+    }
+
+    private Category findExisting(Long categoryId) {
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("존재하지 않는 카테고리입니다. id=" + categoryId);
+        }
+        return category;
+    }
+}
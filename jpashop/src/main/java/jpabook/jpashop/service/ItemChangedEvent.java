@@ -0,0 +1,30 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 상품이 생기거나 이름/가격/재고가 바뀌었다. (ItemService, OrderService가 발행)
+ * - 받는 쪽은 @TransactionalEventListener로 커밋된 다음에 처리한다. => 롤백된 변경은 알리지 않는다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ItemChangedEvent {
+
+    private final Set<Long> itemIds;
+
+    public static ItemChangedEvent of(Long itemId) {
+        return new ItemChangedEvent(Collections.singleton(itemId));
+    }
+
+    public static ItemChangedEvent of(Collection<Long> itemIds) {
+        return new ItemChangedEvent(Collections.unmodifiableSet(new TreeSet<>(itemIds)));
+    }
+}
@@ -1,10 +1,14 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.aop.RetryOnOptimisticLock;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.dto.UpdateItemDto;
+import jpabook.jpashop.repository.CategoryItemRepository;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +22,13 @@ public class ItemService {
      * ItemService는 ItemRepository에 단순하게 위임만 하는 클래스
      */
     private final ItemRepository itemRepository;
+    private final CategoryItemRepository categoryItemRepository;
+    private final ApplicationEventPublisher eventPublisher;   // 상품 추가/변경 => ItemChangedEvent (상품 카탈로그)
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        eventPublisher.publishEvent(ItemChangedEvent.of(item.getId()));
     }
 
     /**
@@ -40,6 +47,7 @@ public class ItemService {
      * 실무에서는 복잡하기 때문에 merge를 통해 깔끔하게 처리할 수 없다. -> 가급적 merge 쓰지말자!!!!
      */
     @Transactional
+    @RetryOnOptimisticLock
     public void updateItem(Long itemId, UpdateItemDto updateItemDto) {   // param : 파라미터로 넘어온 준영속 상태의 엔티티
 
         //id를 기반으로 실제 db에 있는 영속상의 엔티티를 찾아옴
@@ -52,9 +60,14 @@ public class ItemService {
          */
 //        findItem.change(price, name, stockQuantitiy)
 //        findItem.addStock()
+        if (findItem.getPrice() != updateItemDto.getPrice()) {
+            categoryItemRepository.updateItemPrice(itemId, updateItemDto.getPrice());  // 카테고리 상품 가격순 정렬용 복사본 (CategoryItem.itemPrice)
+        }
         findItem.setName(updateItemDto.getName());
         findItem.setPrice(updateItemDto.getPrice());
         findItem.setStockQuantity(updateItemDto.getStockQuantity());
+        itemRepository.changeStock(findItem, updateItemDto.getStockQuantity());  // 재고는 변경 감지로 반영되지 않는다 (Item.stockQuantity 참고)
+        eventPublisher.publishEvent(ItemChangedEvent.of(itemId));
 //        return findItem;
         /**
          * 이후에, itemRepository에서 save, EntityManager의 persist, merge 다 호출할 필요가 없다!
@@ -63,11 +76,29 @@ public class ItemService {
          */
     }
 
+    /**
+     * 분산 재고 모드로 전환 (주문이 한 상품에 몰릴 때)
+     */
+    @Transactional
+    public void shardStock(Long itemId, int bucketCount) {
+
+        Item findItem = itemRepository.findOne(itemId);
+        itemRepository.shardStock(findItem, bucketCount);
+        eventPublisher.publishEvent(ItemChangedEvent.of(itemId));
+    }
+
     public List<Item> findItems() {
         return itemRepository.findAll();
     }
 
+    /**
+     * 트랜잭션 밖(컨트롤러, 템플릿)에서 getStockQuantity()를 불러도 되도록 분산 재고 버킷까지 읽어서 넘긴다. (OSIV를 꺼도 동작)
+     */
     public Item findOne(Long id) {
-        return itemRepository.findOne(id);
+        Item item = itemRepository.findOne(id);
+        if (item != null && item.isStockSharded()) {
+            Hibernate.initialize(item.getStockBuckets());
+        }
+        return item;
     }
 }
@@ -0,0 +1,148 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 회원 이름 Bloom filter (가입할 때 중복 이름 검사를 DB 조회 없이 걸러낸다)
+ * - mightContain()이 false => 확실히 없는 이름 => DB 조회 생략
+ * - mightContain()이 true => 있을 수도 있다 (false-positive-rate 비율로 오탐) => DB로 확인
+ * - 애플리케이션 시작 시 전체 회원 이름으로 다시 만들고, 가입/이름 변경 때마다 추가한다.
+ *
+ * 필터는 서버마다 따로 있기 때문에 다른 서버에서 가입한 이름은 모를 수 있다.
+ * => 최종 판단은 DB unique 제약(uk_member_name)이 한다. 필터는 대부분의 "없는 이름" 조회를 줄여줄 뿐
+ * 이름이 지워져도 필터에서는 빠지지 않는다. (오탐이 늘 뿐 틀린 결과는 없다)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberNameFilter {
+
+    private final MemberRepository memberRepository;
+
+    @Value("${jpashop.member.name-filter.expected-names:1000000}")
+    private int expectedNames;
+
+    @Value("${jpashop.member.name-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile Bits current;     // null 이면 아직 만들기 전 => 모든 이름이 "있을 수도 있다"
+    private volatile Bits building;    // 다시 만드는 중에 추가된 이름도 놓치지 않도록
+
+    /**
+     * InitDb, DataGenerator가 데이터를 넣은 다음에 만든다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        Bits bits = Bits.create(expectedNames, falsePositiveRate);
+        building = bits;
+        long[] count = {0};
+        memberRepository.forEachName(name -> {
+            bits.put(name);
+            count[0]++;
+        });
+        current = bits;
+        building = null;
+        log.info("member name filter rebuilt: {} names, {} bits, {} hashes in {}ms",
+                count[0], bits.bitSize, bits.hashCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean mightContain(String name) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(name);
+    }
+
+    public void put(String name) {
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(name);
+        }
+        Bits rebuilding = building;
+        if (rebuilding != null) {
+            rebuilding.put(name);
+        }
+    }
+
+    /**
+     * 비트 배열 + 해시 k개 (double hashing: h1 + i * h2)
+     * - 여러 쓰레드가 동시에 put 해도 되도록 CAS로 비트를 켠다.
+     */
+    private static class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitSize;
+        private final int hashCount;
+
+        private Bits(long bitSize, int hashCount) {
+            this.words = new AtomicLongArray((int) ((bitSize + 63) / 64));
+            this.bitSize = bitSize;
+            this.hashCount = hashCount;
+        }
+
+        /**
+         * m = -n ln(p) / (ln 2)^2, k = m / n * ln 2
+         */
+        static Bits create(int expected, double falsePositiveRate) {
+            int n = Math.max(1, expected);
+            long m = Math.max(64, (long) (-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+            int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+            return new Bits(m, k);
+        }
+
+        void put(String name) {
+            long hash = hash64(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, bitSize);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long prev;
+                do {
+                    prev = words.get(word);
+                    if ((prev & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, prev, prev | mask));
+            }
+        }
+
+        boolean mightContain(String name) {
+            long hash = hash64(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, bitSize);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a 64bit + murmur3 fmix (String.hashCode()는 32bit라 비트가 부족함)
+         */
+        private static long hash64(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
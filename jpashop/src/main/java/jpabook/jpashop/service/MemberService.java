@@ -1,12 +1,23 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.dto.MemberJoinResult;
+import jpabook.jpashop.dto.MemberJoinResult.Status;
+import jpabook.jpashop.exception.BulkSizeExceededException;
 import jpabook.jpashop.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -20,8 +31,15 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final TransactionTemplate transactionTemplate;
     //final 키워드를 추가하면 컴파일 시점에 memberRepository를 설정하지 않는 오류를 체크할 수 있다.
 
+    @Value("${jpashop.member.bulk.max-size:10000}")
+    private int bulkMaxSize;
+    @Value("${jpashop.member.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
     /**
      * 회원 가입
      */
@@ -29,16 +47,125 @@ public class MemberService {
     public Long join(Member member) {
 
         // 중복 회원 검증 로직
-        validateDuplicateMember(member);
+        validateDuplicateMember(member.getName());
 
-        memberRepository.save(member);
+        try {
+            memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            // 검증을 동시에 통과한 가입 => uk_member_name 제약이 막아준다.
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.put(member.getName());
         return member.getId();
     }
 
-    private void validateDuplicateMember(Member member) {
+    /**
+     * 회원 일괄 가입 (파트너 회원 이관 등)
+     * - 한 건씩 join()하면 가입마다 중복 조회 + INSERT + 커밋이 따로 나간다.
+     * - 여기서는 트랜잭션 1번에
+     *      1. 요청 안에서 중복된 이름은 Set으로 거르고
+     *      2. Bloom filter가 "있을 수도 있다"고 한 이름만 IN 쿼리로 한 번에 확인하고
+     *      3. 나머지를 JDBC batch INSERT
+     * - 결과는 요청 순서대로 한 줄씩 (CREATED / DUPLICATE / INVALID)
+     *
+     * 검사와 INSERT 사이에 다른 요청이 같은 이름으로 가입하면 uk_member_name 제약 위반으로 그 트랜잭션은 통째로 롤백된다.
+     * (제약 위반 뒤에는 하이버네이트 세션을 더 쓸 수 없고, JPA 트랜잭션은 savepoint도 지원하지 않는다)
+     * => 가입할 줄을 한 건씩 각자 트랜잭션으로 다시 INSERT 하고, 제약에 걸린 줄만 DUPLICATE
+     * => 드문 경우라 느려도 된다. (건수만큼 커밋)
+     *
+     * 트랜잭션을 직접 나눠서 쓰기 때문에 NOT_SUPPORTED => 바깥 트랜잭션 안에서 불러도 따로 커밋되고, 바깥이 롤백돼도 가입은 남는다.
+     * 대신 바깥 영속성 컨텍스트는 건드리지 않는다. (batch 크기마다 하는 em.clear()는 여기서 연 트랜잭션의 것)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<MemberJoinResult> joinAll(List<Member> members) {
+
+        if (members.size() > bulkMaxSize) {
+            throw new BulkSizeExceededException("한 번에 가입할 수 있는 회원 수는 " + bulkMaxSize + "명까지입니다.");
+        }
+
+        Status[] statuses = new Status[members.size()];
+        List<Member> toSave = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                classify(members, statuses, toSave);
+                memberRepository.saveAll(toSave, bulkBatchSize);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // 검사를 동시에 통과한 가입 => 롤백된 INSERT를 한 건씩 다시
+            for (int i = 0; i < members.size(); i++) {
+                if (statuses[i] == Status.CREATED) {
+                    statuses[i] = joinOne(members.get(i));
+                }
+            }
+        }
+
+        List<MemberJoinResult> results = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            Long id = null;
+            if (statuses[i] == Status.CREATED) {
+                memberNameFilter.put(member.getName());
+                id = member.getId();
+            }
+            results.add(new MemberJoinResult(i, member.getName(), statuses[i], id));
+        }
+        return results;
+    }
 
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if (!findMembers.isEmpty()) {
+    /**
+     * 요청 안 중복 + 이미 가입된 이름을 걸러서 statuses를 채우고, 가입할 회원을 toSave에 담는다.
+     */
+    private void classify(List<Member> members, Status[] statuses, List<Member> toSave) {
+
+        Set<String> requested = new HashSet<>();
+        Set<String> mightExist = new HashSet<>();
+        for (Member member : members) {
+            String name = member.getName();
+            if (name != null && !name.isEmpty() && requested.add(name) && memberNameFilter.mightContain(name)) {
+                mightExist.add(name);
+            }
+        }
+        Set<String> existing = mightExist.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(memberRepository.findExistingNames(mightExist));
+
+        Set<String> accepted = new HashSet<>();
+        for (int i = 0; i < members.size(); i++) {
+            String name = members.get(i).getName();
+            if (name == null || name.isEmpty()) {
+                statuses[i] = Status.INVALID;
+            } else if (existing.contains(name) || !accepted.add(name)) {
+                statuses[i] = Status.DUPLICATE;
+            } else {
+                statuses[i] = Status.CREATED;
+                toSave.add(members.get(i));
+            }
+        }
+    }
+
+    /**
+     * 한 명만 새 트랜잭션으로 INSERT => uk_member_name 제약에 걸리면 DUPLICATE
+     */
+    private Status joinOne(Member member) {
+
+        member.setId(null); // 롤백된 INSERT에서 받은 id => 그대로 persist 하면 준영속 엔티티로 본다.
+        try {
+            transactionTemplate.executeWithoutResult(status -> memberRepository.saveAndFlush(member));
+            return Status.CREATED;
+        } catch (DataIntegrityViolationException e) {
+            member.setId(null);
+            memberNameFilter.put(member.getName());    // 다른 요청이 가입시킨 이름 => 다음 검사에서는 IN 쿼리로 확인
+            return Status.DUPLICATE;
+        }
+    }
+
+    private void validateDuplicateMember(String name) {
+
+        // Bloom filter에 없으면 확실히 없는 이름 => 쿼리 생략 (대부분의 가입)
+        if (!memberNameFilter.mightContain(name)) {
+            return;
+        }
+        if (memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
         /**
@@ -68,7 +195,18 @@ public class MemberService {
     public void update(Long id, String name) {
 
         Member member = memberRepository.findOne(id);
+        if (Objects.equals(member.getName(), name)) {
+            return;
+        }
+        validateDuplicateMember(name);  // 이름 변경도 가입과 같은 중복 검증
+
         member.setName(name);   // 변경감지에 의해 변경
+        try {
+            memberRepository.flush();   // uk_member_name 제약 위반을 커밋 시점이 아니라 여기서 터뜨린다.
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.put(name);
         /**
          * 1. db에서 영속성 컨텍스트에 올린 member 반환
          * 2. 영속 상태의 member를 바꿔주면
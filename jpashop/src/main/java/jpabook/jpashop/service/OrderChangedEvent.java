@@ -0,0 +1,44 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 주문이 생기거나 상태가 바뀌었다. (OrderService가 발행)
+ * - 받는 쪽은 @TransactionalEventListener로 커밋된 다음에 처리한다. => 롤백된 변경은 알리지 않는다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OrderChangedEvent {
+
+    private final Long orderId;
+    private final OrderStatus previousStatus;   // 새 주문이면 null
+    private final OrderStatus status;
+
+    public static OrderChangedEvent created(Order order) {
+        return new OrderChangedEvent(order.getId(), null, order.getStatus());
+    }
+
+    public static OrderChangedEvent statusChanged(Order order, OrderStatus previousStatus) {
+        return new OrderChangedEvent(order.getId(), previousStatus, order.getStatus());
+    }
+
+    /**
+     * 이 변경으로 검색 결과가 달라질 수 있는 주문 상태 (이전 상태 + 지금 상태)
+     */
+    public Set<OrderStatus> getAffectedStatuses() {
+        Set<OrderStatus> statuses = EnumSet.noneOf(OrderStatus.class);
+        if (previousStatus != null) {
+            statuses.add(previousStatus);
+        }
+        statuses.add(status);
+        return statuses;
+    }
+}
@@ -0,0 +1,210 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 접수 큐 (group commit)
+ * - 주문마다 트랜잭션을 따로 커밋하면 커밋(디스크 fsync) 비용이 주문 수만큼 든다.
+ * - 주문 요청을 큐에 쌓고, 소비 쓰레드가 batchSize 건 또는 maxWait 시간만큼 모아서 트랜잭션 1번으로 처리한다.
+ *      => 커밋 1번 + INSERT는 JDBC batch로 묶여서 나간다.
+ * - 요청한 쪽은 CompletableFuture로 자기 주문 id (또는 예외)를 돌려받는다.
+ * - 큐가 가득 차면 offerTimeout 동안 기다려 보고, 그래도 자리가 없으면 OrderQueueFullException (backpressure)
+ * - stop() 뒤에 들어온 주문, stop() 때 처리하지 못하고 큐에 남은 주문도 OrderQueueFullException
+ *      => 아무도 처리하지 않는 큐에 쌓여서 요청이 끝나지 않는 일이 없도록
+ *
+ * jpashop.order-intake.enabled=true 일 때만 동작한다. (기본은 주문마다 바로 트랜잭션 처리)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderIntakeService {
+
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${jpashop.order-intake.enabled:false}")
+    private boolean enabled;
+    @Value("${jpashop.order-intake.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${jpashop.order-intake.batch-size:100}")
+    private int batchSize;
+    @Value("${jpashop.order-intake.max-wait-millis:5}")
+    private long maxWaitMillis;
+    @Value("${jpashop.order-intake.offer-timeout-millis:100}")
+    private long offerTimeoutMillis;
+
+    private BlockingQueue<OrderCommand> queue;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        consumer = new Thread(this::drainLoop, "order-intake");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (consumer == null) {
+            return;
+        }
+        running = false;    // 큐에 남은 주문은 다 처리하고 종료
+        consumer.join(TimeUnit.SECONDS.toMillis(10));
+
+        // 시간 안에 처리하지 못한 주문 + 종료와 동시에 들어온 주문 => 소비 쓰레드가 없으니 여기서 실패로 끝낸다.
+        List<OrderCommand> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(command -> command.fail(stopped()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 주문 접수
+     */
+    public CompletableFuture<Long> submit(Long memberId, Long itemId, int count) {
+
+        if (!running) {
+            throw stopped();
+        }
+        OrderCommand command = new OrderCommand(memberId, itemId, count);
+        try {
+            if (!queue.offer(command, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new OrderQueueFullException("주문이 밀려 있습니다. 잠시 후 다시 시도해 주세요.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderQueueFullException(e);
+        }
+        // 넣는 사이에 stop() => 소비 쓰레드도 stop()의 정리도 이미 지나갔을 수 있다.
+        // 큐에서 다시 빼는 데 성공하면 아무도 안 가져간 것 => 거절 (못 빼면 누군가 가져가서 결과를 채운다)
+        if (!running && queue.remove(command)) {
+            throw stopped();
+        }
+        return command.result;
+    }
+
+    private static OrderQueueFullException stopped() {
+        return new OrderQueueFullException("주문 접수를 종료했습니다. 잠시 후 다시 시도해 주세요.");
+    }
+
+    private void drainLoop() {
+        List<OrderCommand> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                // 배치가 덜 찼으면 maxWait 까지만 더 모은다.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < batchSize) {
+                    OrderCommand next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                log.error("order intake batch failed", e);
+                batch.forEach(command -> command.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 배치를 트랜잭션 1번으로 처리
+     * - 재고 부족은 주문 단위로 실패 처리하고 나머지 주문은 그대로 커밋한다.
+     * - 그 외 이유로 배치 트랜잭션이 실패하면, 문제 있는 주문만 실패하도록 한 건씩 따로 다시 처리한다.
+     */
+    private void applyBatch(List<OrderCommand> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+        } catch (RuntimeException e) {
+            log.warn("order intake batch rolled back, fallback to single orders. size={}", batch.size(), e);
+            for (OrderCommand command : batch) {
+                command.reset();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(command));
+                } catch (RuntimeException ex) {
+                    command.error = ex;
+                }
+            }
+        }
+        batch.forEach(OrderCommand::complete);  // 커밋이 끝난 다음에 결과를 알린다.
+    }
+
+    private void apply(OrderCommand command) {
+        try {
+            command.orderId = orderService.orderInBatch(command.memberId, command.itemId, command.count);
+        } catch (NotEnoughStockException e) {
+            command.error = e;  // 재고 부족은 DB에 남긴 것 없이 실패하고 롤백 표시도 하지 않는다. => 배치의 다른 주문은 영향 없음
+        }
+    }
+
+    private static class OrderCommand {
+        private final Long memberId;
+        private final Long itemId;
+        private final int count;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private Long orderId;
+        private RuntimeException error;
+
+        OrderCommand(Long memberId, Long itemId, int count) {
+            this.memberId = memberId;
+            this.itemId = itemId;
+            this.count = count;
+        }
+
+        void reset() {
+            orderId = null;
+            error = null;
+        }
+
+        void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(orderId);
+            }
+        }
+
+        void fail(Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
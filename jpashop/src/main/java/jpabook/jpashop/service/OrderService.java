@@ -1,19 +1,34 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.aop.RetryOnOptimisticLock;
 import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.dto.OrderLineDto;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.CursorSlice;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static java.util.Comparator.comparing;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 
 @Service
 @Transactional(readOnly = true)
@@ -23,13 +38,37 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;   // 주문 생성/상태 변경 => OrderChangedEvent (검색 결과 캐시 무효화), 재고 변경 => ItemChangedEvent (상품 카탈로그)
 
     /**
      * 주문
-     * - @Transactional => 데이터를 변경하기 때문에
+     * - @Transactional => 데이터를 변경하기 때문에 (예외가 나면 전부 롤백)
      */
     @Transactional
+    @RetryOnOptimisticLock
     public Long order(Long memberId, Long itemId, int count) {
+        return placeOrder(memberId, itemId, count);
+    }
+
+    /**
+     * 주문 접수 큐(OrderIntakeService)가 여러 주문을 묶은 트랜잭션 안에서 주문 1건
+     * - 재고 부족은 DB에 아무것도 남기지 않고 실패한다. (placeOrder 참고) => 롤백 표시를 하지 않아서 같은 배치의 다른 주문은 그대로 커밋된다.
+     * - 그 외 예외는 배치 트랜잭션 전체를 롤백시킨다. (큐가 한 건씩 다시 처리)
+     * - 배치 트랜잭션에 참여하기 때문에 낙관적 락 재시도(@RetryOnOptimisticLock)는 하지 않는다. => 다시 실행해도 같은 트랜잭션이라 의미가 없다.
+     */
+    @Transactional(propagation = Propagation.MANDATORY, noRollbackFor = NotEnoughStockException.class)
+    public Long orderInBatch(Long memberId, Long itemId, int count) {
+        return placeOrder(memberId, itemId, count);
+    }
+
+    /**
+     * 재고 부족(NotEnoughStockException)은 DB 재고를 바꾸기 전에 난다.
+     * 1. 엔티티 재고로 먼저 검증 (OrderItem.createOrderItem)
+     * 2. DB 재고 조건부 차감 - 실패하면 차감된 것이 없다. (분산 재고는 빌려온 버킷 재고를 돌려놓고 실패)
+     */
+    private Long placeOrder(Long memberId, Long itemId, int count) {
+
+        validateCount(count);
 
         //엔티티 조회
         Member member = memberRepository.findOne(memberId);
@@ -39,7 +78,7 @@ public class OrderService {
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
-        //주문상품 생성
+        //주문상품 생성 - 엔티티 재고 검증 (DB에 쓰기 전)
         OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);  // 단순화를 위해 item 하나만 넘김
 //        OrderItem orderItem = new OrderItem();
         /**
@@ -50,14 +89,91 @@ public class OrderService {
          *      '쓰지 말라는거구나' 알 수 있음
          */
 
+        //재고 차감 - 조건부 UPDATE 한 번으로 DB 재고를 줄인다. (재고가 부족하면 NotEnoughStockException)
+        // => 동시에 같은 상품을 주문해도 재고가 음수가 되거나 덮어써지지 않는다.
+        try {
+            itemRepository.removeStock(item, count);
+        } catch (NotEnoughStockException e) {
+            item.addStock(count);   // 엔티티 재고도 되돌린다. (배치에서 같은 영속성 컨텍스트를 쓰는 다음 주문을 위해)
+            throw e;
+        }
+
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
         //주문 저장
         orderRepository.save(order);
+        eventPublisher.publishEvent(OrderChangedEvent.created(order));
+        eventPublisher.publishEvent(ItemChangedEvent.of(itemId));
+        return order.getId();
+    }
+    /**
+     * 장바구니 주문 (여러 상품을 주문 하나로)
+     * - 상품은 IN 쿼리 1번으로 조회
+     * - 재고는 상품 id 순서대로 JDBC batch 1번으로 차감 (데드락 방지)
+     * - 주문 1개 + 주문상품 N개는 cascade + JDBC batch INSERT
+     * => 주문 줄 수가 늘어도 DB 왕복 수는 거의 그대로
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public Long checkout(Long memberId, List<OrderLineDto> lines) {
+
+        //같은 상품이 여러 줄이면 합친다. (상품 id 순으로 정렬)
+        Map<Long, Integer> countByItemId = new TreeMap<>();
+        for (OrderLineDto line : lines) {
+            if (line == null || line.getItemId() == null) {
+                throw new IllegalArgumentException("주문할 상품이 없습니다.");
+            }
+            validateCount(line.getCount());
+            countByItemId.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+
+        //엔티티 조회
+        Member member = memberRepository.findOne(memberId);
+        Map<Long, Item> itemById = itemRepository.findAllById(countByItemId.keySet()).stream()
+                .collect(toMap(Item::getId, identity()));
+
+        SortedMap<Item, Integer> stockCounts = new TreeMap<>(comparing(Item::getId));
+        countByItemId.forEach((itemId, count) -> {
+            Item item = itemById.get(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+            }
+            stockCounts.put(item, count);
+        });
+
+        //재고 차감
+        itemRepository.removeStocks(stockCounts);
+
+        //배송정보 생성
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        //주문상품 생성
+        OrderItem[] orderItems = stockCounts.entrySet().stream()
+                .map(e -> OrderItem.createOrderItem(e.getKey(), e.getKey().getPrice(), e.getValue()))
+                .toArray(OrderItem[]::new);
+
+        //주문 생성
+        Order order = Order.createOrder(member, delivery, orderItems);
+
+        //주문 저장
+        orderRepository.save(order);
+        eventPublisher.publishEvent(OrderChangedEvent.created(order));
+        eventPublisher.publishEvent(ItemChangedEvent.of(countByItemId.keySet()));
         return order.getId();
     }
+
+    /**
+     * 주문 수량은 1 이상 - 0 이하면 재고 차감 UPDATE(stock_quantity - 수량)가 오히려 재고를 늘린다.
+     */
+    private static void validateCount(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("주문 수량은 1 이상이어야 합니다. count=" + count);
+        }
+    }
+
     /**
      * 원래대로 라면 DeliveryRepository, OrderItemRepository 에서 save해서 넣어준 다음에 주문 생성을 해야 한다.
      * => 그런데 우리는 OrderRepository에서만 save했다!
@@ -76,13 +192,24 @@ public class OrderService {
      * 주문 취소
      */
     @Transactional
+    @RetryOnOptimisticLock
     public void cancelOrder(Long orderId) {
 
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
 
         //주문 취소
+        OrderStatus previousStatus = order.getStatus();
         order.cancel();
+        eventPublisher.publishEvent(OrderChangedEvent.statusChanged(order, previousStatus));
+
+        //재고 원복 - 엔티티 값은 order.cancel()에서 맞췄고, DB 재고는 원자적 UPDATE로 늘린다.
+        List<Long> itemIds = new ArrayList<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            itemRepository.addStock(orderItem.getItem(), orderItem.getCount());
+            itemIds.add(orderItem.getItem().getId());
+        }
+        eventPublisher.publishEvent(ItemChangedEvent.of(itemIds));
     }
     /**
      * JPA의 강점
@@ -97,8 +224,8 @@ public class OrderService {
     /**
      * 검색
      */
-    public List<Order> findOrders(OrderSearch orderSearch) {
+    public CursorSlice<Order> findOrders(OrderSearch orderSearch) {
 
-        return orderRepository.findAllByString(orderSearch);
+        return orderRepository.findAllWithMemberDelivery(orderSearch);
     }
 }
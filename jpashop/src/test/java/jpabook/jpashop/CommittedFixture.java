@@ -0,0 +1,38 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 커밋하는 테스트용 데이터 (상품, 회원) - @Import(CommittedFixture.class)로 쓴다.
+ * - 커밋 후 이벤트(캐시 갱신), 2차 캐시, 여러 쓰레드의 트랜잭션을 보는 테스트는 @Transactional(롤백)을 붙일 수 없다.
+ *      => 서비스를 불러서 바로 커밋한다.
+ * - 커밋한 데이터는 남는다. => 쓰는 테스트 클래스에 @DirtiesContext를 붙여서 클래스가 끝나면 컨텍스트와 메모리 DB를 버린다.
+ *      (다른 테스트 클래스가 남은 회원/상품/주문을 보지 않도록)
+ */
+@RequiredArgsConstructor
+public class CommittedFixture {
+
+    private final ItemService itemService;
+    private final MemberService memberService;
+
+    public Long createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    public Long createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.datagen.enabled=true",
+        "jpashop.datagen.threads=3",
+        "jpashop.datagen.batch-size=7",
+        "jpashop.datagen.members=50",
+        "jpashop.datagen.books=10",
+        "jpashop.datagen.albums=5",
+        "jpashop.datagen.movies=5",
+        "jpashop.datagen.categories=6",
+        "jpashop.datagen.orders-per-member=4",
+        "jpashop.datagen.cancel-ratio=0.5"
+})
+public class DataGeneratorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 설정한_만큼_데이터_생성() throws Exception {
+        //then (애플리케이션 시작 시점에 생성됨, InitDb는 동작하지 않음)
+        assertEquals("회원 수", 50L, count("select count(m) from Member m"));
+        assertEquals("상품 수", 20L, count("select count(i) from Item i"));
+        assertEquals("앨범 수", 5L, count("select count(a) from Album a"));
+        assertEquals("카테고리 수", 6L, count("select count(c) from Category c"));
+        assertEquals("주문 수", 200L, count("select count(o) from Order o"));
+        assertEquals("주문마다 배송 1건", 200L, count("select count(d) from Delivery d"));
+        assertTrue("주문마다 주문상품 1건 이상", count("select count(oi) from OrderItem oi") >= 200L);
+
+        long canceled = em.createQuery("select count(o) from Order o where o.status = :status", Long.class)
+                .setParameter("status", OrderStatus.CANCEL)
+                .getSingleResult();
+        assertTrue("취소 주문이 섞여 있어야 한다.", canceled > 0 && canceled < 200);
+    }
+
+    private long count(String jpql) {
+        return em.createQuery(jpql, Long.class).getSingleResult();
+    }
+}
@@ -0,0 +1,57 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 회원 일괄 등록 - 잘못된 요청은 500이 아니라 400
+ * 일괄 등록은 테스트 트랜잭션과 상관없이 커밋된다. => @DirtiesContext
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.member.bulk.max-size=3")
+@AutoConfigureMockMvc
+@DirtiesContext
+public class MemberApiControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void 일괄_등록() throws Exception {
+        mockMvc.perform(bulk("[{\"name\":\"bulk1\"},{\"name\":\"bulk1\"},{\"name\":\"\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.data[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$.data[2].status").value("INVALID"));
+    }
+
+    @Test
+    public void 일괄_등록_null_요소는_400() throws Exception {
+        mockMvc.perform(bulk("[{\"name\":\"bulk2\"},null]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_REQUEST"));
+    }
+
+    @Test
+    public void 일괄_등록_건수_초과는_400() throws Exception {
+        mockMvc.perform(bulk("[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"name\":\"d\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("BULK_SIZE_EXCEEDED"));
+    }
+
+    private static RequestBuilder bulk(String body) {
+        return post("/api/v2/members/bulk").contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+}
@@ -0,0 +1,159 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.NPlusOneDetector;
+import jpabook.jpashop.monitoring.NPlusOneDetector.Detection;
+import jpabook.jpashop.monitoring.NPlusOneDetector.DetectionScope;
+import jpabook.jpashop.monitoring.SqlStatementBudget;
+import jpabook.jpashop.monitoring.SqlStatementCountFilter;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderSort;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 100건 기준 API별 SQL 수
+ * - v2: 엔티티 조회 + LAZY 로딩 => N+1
+ * - v3(fetch join), v4(DTO 조회), v5(커서 페이징 + fetch join): 1번
+ * - NPlusOneDetector는 v2의 배송 LAZY 로딩을 SimpleOrderDto 생성자 위치로 잡아낸다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderSimpleApiControllerTest {
+
+    private static final int ORDERS = 100;
+    private static final int MEMBERS = 10;
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    NPlusOneDetector nPlusOneDetector;
+
+    @Before
+    public void createOrders() {
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(ORDERS);
+        em.persist(book);
+
+        for (int i = 0; i < MEMBERS; i++) {
+            Member member = new Member();
+            member.setName("회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            for (int j = 0; j < ORDERS / MEMBERS; j++) {
+                orderService.order(member.getId(), book.getId(), 1);
+            }
+        }
+        em.flush();
+        em.clear(); // 영속성 컨텍스트에 남아 있으면 LAZY 로딩이 SQL 없이 끝난다.
+    }
+
+    @Test
+    public void 엔티티조회_N플러스1() throws Exception {
+        try (StatementCount count = SqlStatementCounter.start()) {
+            mockMvc.perform(get("/api/v2/simpmle-orders"))
+                    .andExpect(status().isOk());
+
+            assertTrue("주문마다 배송을 LAZY 로딩한다. 실행=" + count.getCount(), count.getCount() > ORDERS);
+        }
+    }
+
+    @Test
+    public void N플러스1_탐지() throws Exception {
+        try (DetectionScope scope = nPlusOneDetector.start()) {
+            mockMvc.perform(get("/api/v2/simpmle-orders"))
+                    .andExpect(status().isOk());
+
+            List<Detection> detections = scope.getDetections();
+            Detection delivery = detections.stream()
+                    .filter(d -> d.getTarget().equals(Delivery.class.getName()))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("배송 LAZY 로딩이 탐지되어야 한다. " + detections));
+            assertTrue("주문마다 LAZY 로딩한다.", delivery.getCount() >= ORDERS);
+            assertTrue("LAZY 로딩한 위치는 SimpleOrderDto 생성자다.", delivery.getCallSite().contains("SimpleOrderDto.<init>"));
+        }
+    }
+
+    @Test
+    public void 페치조인은_N플러스1_없음() throws Exception {
+        try (DetectionScope scope = nPlusOneDetector.start()) {
+            mockMvc.perform(get("/api/v3/simpmle-orders"))
+                    .andExpect(status().isOk());
+
+            assertTrue("fetch join은 LAZY 로딩이 없다.", scope.getDetections().isEmpty());
+        }
+    }
+
+    @Test
+    @SqlStatementBudget(1)
+    public void 페치조인() throws Exception {
+        mockMvc.perform(get("/api/v3/simpmle-orders"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlStatementBudget(1)
+    public void DTO조회() throws Exception {
+        mockMvc.perform(get("/api/v4/simpmle-orders"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatementCountFilter.HEADER, "1"))
+                .andExpect(jsonPath("$[0].orderId").isString());   // Snowflake id는 문자열로
+    }
+
+    @Test
+    @SqlStatementBudget(1)
+    public void 커서페이징() throws Exception {
+        mockMvc.perform(get("/api/v5/simpmle-orders").param("size", "50"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 엔티티조회_기존_최대건수() throws Exception {
+        mockMvc.perform(get("/api/v2/simpmle-orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ORDERS));   // 페이지 크기(100)가 아니라 예전처럼 최대 1000건
+    }
+
+    @Test
+    public void 잘못된_커서는_400() throws Exception {
+        mockMvc.perform(get("/api/v5/simpmle-orders").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_CURSOR"));
+
+        String priceCursor = OrderCursor.of(OrderSort.TOTAL_PRICE, null, 10000, 1L).encode();
+        mockMvc.perform(get("/api/v6/simpmle-orders").param("cursor", priceCursor))   // 정렬 기준이 다른 커서
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v2/categories/1/items").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+}
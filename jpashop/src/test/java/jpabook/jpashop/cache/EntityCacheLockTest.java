@@ -0,0 +1,85 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.service.ItemService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 2차 캐시 엔트리 잠금 - 2차 캐시를 켠 상태(기본값)에서 트랜잭션 2개를 동시에 돌린다.
+ * - 한 트랜잭션이 잠근 동안 다른 트랜잭션은 캐시 대신 DB에서 읽고, 잠금이 풀린 뒤에는 다시 캐시에서 읽는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class EntityCacheLockTest {
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    EntityCacheLock entityCacheLock;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 잠긴_동안_캐시_건너뜀() throws Exception {
+        //given
+        Long itemId = fixture.createBook("캐시 잠금 JPA", 10000, 10);
+        Item cached = itemService.findOne(itemId);
+        assertCachedReadCount("잠그기 전에는 캐시에서 읽는다.", itemId, 0);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        //when
+        Future<?> writer = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            entityCacheLock.lockUntilCompletion(Item.class, itemId, cached.getVersion());
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);   // 다른 트랜잭션이 읽는 동안 커밋하지 않고 기다린다.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        //then
+        assertCachedReadCount("잠긴 동안에는 DB에서 읽는다.", itemId, 1);
+        assertCachedReadCount("잠긴 동안 읽은 값은 캐시에 넣지 않는다.", itemId, 1);
+
+        release.countDown();
+        writer.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        itemService.findOne(itemId);    // 잠금이 풀린 뒤 시작한 트랜잭션은 캐시에 다시 넣는다.
+        assertCachedReadCount("커밋 후에는 다시 캐시에서 읽는다.", itemId, 0);
+    }
+
+    private void assertCachedReadCount(String message, Long itemId, long expected) {
+        try (StatementCount count = SqlStatementCounter.start()) {
+            itemService.findOne(itemId);
+            assertEquals(message, expected, count.getCount());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.dto.UpdateItemDto;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 상품 카탈로그 스냅샷
+ * - 스냅샷은 별도 쓰레드가 바꾸기 때문에 확인하기 전에 awaitRefresh()로 기다린다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class ItemCatalogCacheTest {
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    ItemCatalogCache itemCatalogCache;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderService orderService;
+
+    @Test
+    public void 상품_등록_수정_주문_반영() throws Exception {
+        //given
+        Long itemId = fixture.createBook("카탈로그 JPA", 10000, 10);
+        itemCatalogCache.awaitRefresh();
+        ItemCatalog before = itemCatalogCache.get();
+        assertEquals("카탈로그 JPA", before.find(itemId).getName());
+
+        //when
+        itemService.updateItem(itemId, UpdateItemDto.builder().name("카탈로그 JPA 2판").price(12000).stockQuantity(20).build());
+        orderService.order(fixture.createMember("카탈로그회원"), itemId, 3);
+        itemCatalogCache.awaitRefresh();    // 스냅샷은 별도 쓰레드가 바꾼다.
+
+        //then
+        ItemCatalog.Entry entry = itemCatalogCache.get().find(itemId);
+        assertEquals("카탈로그 JPA 2판", entry.getName());
+        assertEquals(12000, entry.getPrice());
+        assertEquals("주문 수량만큼 재고가 줄어야 한다.", 17, entry.getStockQuantity());
+        assertEquals('B', entry.getDtype());
+        assertEquals("이전 스냅샷은 바뀌지 않는다.", "카탈로그 JPA", before.find(itemId).getName());
+    }
+
+    @Test
+    public void 분산_재고_합계() throws Exception {
+        //given
+        Long itemId = fixture.createBook("카탈로그 분산재고", 10000, 100);
+
+        //when
+        itemService.shardStock(itemId, 4);
+        itemCatalogCache.awaitRefresh();
+
+        //then
+        assertEquals("버킷 재고의 합", 100, itemCatalogCache.get().find(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 목록_조회는_쿼리_없음() throws Exception {
+        //given
+        fixture.createBook("카탈로그 조회", 10000, 10);
+        itemCatalogCache.awaitRefresh();
+
+        //when
+        try (StatementCount count = SqlStatementCounter.start()) {
+            List<ItemCatalog.Entry> items = itemCatalogCache.get().entries();
+            items.forEach(item -> item.getStockQuantity());
+
+            //then
+            assertEquals(0, count.getCount());
+            assertFalse(items.isEmpty());
+        }
+    }
+
+    @Test
+    public void 스냅샷_병합() throws Exception {
+        //given
+        ItemCatalog catalog = ItemCatalog.of(Arrays.asList(
+                row(1L, "A", 1000, 1), row(3L, "C", 3000, 3), row(5L, "E", 5000, 5)));
+
+        //when
+        ItemCatalog changed = catalog.with(Arrays.asList(2L, 3L, 5L),   // 2: 추가, 3: 수정, 5: 삭제
+                Arrays.asList(row(2L, "B", 2000, 2), row(3L, "C2", 3300, 0)));
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(changed));
+        assertEquals("C2", changed.find(3L).getName());
+        assertEquals(3300, changed.find(3L).getPrice());
+        assertNull(changed.find(5L));
+        assertEquals("원래 스냅샷은 그대로", Arrays.asList(1L, 3L, 5L), ids(catalog));
+        assertEquals(ids(catalog), ids(catalog.with(Collections.emptyList(), Collections.emptyList())));
+    }
+
+    private static Object[] row(Long id, String name, int price, int stock) {
+        return new Object[]{id, name, price, stock, 'B'};
+    }
+
+    private static List<Long> ids(ItemCatalog catalog) {
+        return catalog.entries().stream().map(ItemCatalog.Entry::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.repository.CursorSlice;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 검색 결과 캐시
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class OrderSearchCacheTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    OrderSearchCache orderSearchCache;
+    @Autowired
+    OrderService orderService;
+
+    @Test
+    public void 같은_검색은_캐시에서() throws Exception {
+        //given
+        Long memberId = fixture.createMember("검색캐시회원");
+        Long itemId = fixture.createBook("검색캐시 JPA", 10000, 100);
+        orderService.order(memberId, itemId, 1);
+        orderSearchCache.findOrderDtos(search("검색캐시회원", null));
+
+        //when
+        try (StatementCount count = SqlStatementCounter.start()) {
+            CursorSlice<OrderSimpleQueryDto> orders = orderSearchCache.findOrderDtos(search("검색캐시회원", null));
+
+            //then
+            assertEquals("캐시에서 읽으면 SQL이 나가지 않는다.", 0, count.getCount());
+            assertEquals(1, orders.getContent().size());
+        }
+    }
+
+    @Test
+    public void 주문_생성_취소시_무효화() throws Exception {
+        //given
+        Long memberId = fixture.createMember("검색무효화회원");
+        Long itemId = fixture.createBook("검색무효화 JPA", 10000, 100);
+        Long orderId = orderService.order(memberId, itemId, 1);
+        assertEquals(1, orderSearchCache.findOrderDtos(search("검색무효화회원", null)).getContent().size());
+        assertEquals(0, orderSearchCache.findOrderDtos(search("검색무효화회원", OrderStatus.CANCEL)).getContent().size());
+
+        //when
+        orderService.order(memberId, itemId, 2);
+        orderService.cancelOrder(orderId);
+
+        //then
+        assertEquals("새 주문이 보여야 한다.", 2,
+                orderSearchCache.findOrderDtos(search("검색무효화회원", null)).getContent().size());
+        assertEquals("취소한 주문이 보여야 한다.", 1,
+                orderSearchCache.findOrderDtos(search("검색무효화회원", OrderStatus.CANCEL)).getContent().size());
+        assertEquals(1, orderSearchCache.findOrderListDtos(search("검색무효화회원", OrderStatus.ORDER)).getContent().size());
+    }
+
+    @Test
+    public void 동시_조회는_DB_1번() throws Exception {
+        //given
+        Long memberId = fixture.createMember("동시검색회원");
+        Long itemId = fixture.createBook("동시검색 JPA", 10000, 100);
+        orderService.order(memberId, itemId, 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger statements = new AtomicInteger();
+
+        //when
+        List<Future<CursorSlice<OrderSimpleQueryDto>>> results = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try (StatementCount count = SqlStatementCounter.start()) {
+                    CursorSlice<OrderSimpleQueryDto> orders = orderSearchCache.findOrderDtos(search("동시검색회원", null));
+                    statements.addAndGet(count.getCount());
+                    return orders;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<CursorSlice<OrderSimpleQueryDto>> result : results) {
+            assertEquals(1, result.get().getContent().size());
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals("동시에 같은 검색을 해도 DB 조회는 1번이다.", 1, statements.get());
+    }
+
+    private OrderSearch search(String memberName, OrderStatus orderStatus) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        orderSearch.setOrderStatus(orderStatus);
+        return orderSearch;
+    }
+}
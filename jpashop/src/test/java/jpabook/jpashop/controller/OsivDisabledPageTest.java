@@ -0,0 +1,90 @@
+package jpabook.jpashop.controller;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * OSIV를 끈 상태에서 화면 렌더링
+ * - 템플릿에서 LAZY 로딩을 하면 LazyInitializationException => 화면마다 필요한 값을 미리 조회해야 한다.
+ * - 테스트 트랜잭션이 있으면 OSIV처럼 영속성 컨텍스트가 열려 있기 때문에 @Transactional을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.open-in-view=false")
+@AutoConfigureMockMvc
+public class OsivDisabledPageTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 상품_목록_분산재고() throws Exception {
+        //given
+        Long itemId = createBook("OSIV 분산재고", 10000, 100);
+        itemService.shardStock(itemId, 4);
+
+        //when //then
+        mockMvc.perform(get("/items"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("items", hasItem(allOf(
+                        hasProperty("name", is("OSIV 분산재고")),
+                        hasProperty("stockQuantity", is(100))))));
+    }
+
+    @Test
+    public void 상품_수정_화면_분산재고() throws Exception {
+        //given
+        Long itemId = createBook("OSIV 수정화면", 10000, 50);
+        itemService.shardStock(itemId, 2);
+
+        //when //then
+        mockMvc.perform(get("/items/{itemId}/edit", itemId))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("form", hasProperty("stockQuantity", is(50))));
+    }
+
+    @Test
+    public void 주문_목록() throws Exception {
+        mockMvc.perform(get("/orders"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 커넥션_점유시간_메트릭() throws Exception {
+        //when
+        mockMvc.perform(get("/items"))
+                .andExpect(status().isOk());
+
+        //then
+        Timer timer = Metrics.globalRegistry.find("jpashop.connection.hold.request")
+                .tag("uri", "/items")
+                .timer();
+        assertNotNull("요청마다 커넥션 점유 시간을 남긴다.", timer);
+        assertTrue(timer.count() > 0);
+    }
+
+    private Long createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,134 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MILLIS = 1000;
+
+    private DataSource primary;
+    private DataSource replicaDb;
+    private volatile boolean replicaDown;
+
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Before
+    public void setUp() {
+        primary = database("primary");
+        replicaDb = database("replica");
+        new JdbcTemplate(replicaDb).execute("create table replica_lag (lag bigint)");
+        new JdbcTemplate(replicaDb).update("insert into replica_lag values (0)");
+
+        DataSource replica = new DelegatingDataSource(replicaDb) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown) {
+                    throw new SQLException("replica is down");
+                }
+                return super.getConnection();
+            }
+        };
+
+        routing = new ReplicaRoutingDataSource(primary, Collections.singletonMap("replica-0", replica),
+                "select lag from replica_lag", MAX_LAG_MILLIS, TimeUnit.HOURS.toMillis(1));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        routing.close();
+        new JdbcTemplate(primary).execute("drop all objects");
+        new JdbcTemplate(replicaDb).execute("drop all objects");
+    }
+
+    @Test
+    public void 읽기_전용_트랜잭션은_레플리카() throws Exception {
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("트랜잭션 밖은 프라이머리", "primary", node());
+    }
+
+    @Test
+    public void 레플리카_장애시_프라이머리() throws Exception {
+        //given
+        replicaDown = true;
+
+        //when
+        String node = readOnly.execute(status -> node());
+
+        //then
+        assertEquals("primary", node);
+        assertFalse("커넥션을 못 얻은 레플리카는 빠진다.", routing.getReplicas().get(0).isAvailable());
+
+        //복구 => 다음 상태 확인부터 다시 쓴다.
+        replicaDown = false;
+        routing.checkReplicas();
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void 복제_지연이_크면_프라이머리() throws Exception {
+        //given
+        new JdbcTemplate(replicaDb).update("update replica_lag set lag = ?", MAX_LAG_MILLIS + 1);
+
+        //when
+        routing.checkReplicas();
+
+        //then
+        assertEquals(MAX_LAG_MILLIS + 1, routing.getReplicas().get(0).getLagMillis());
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void 계정을_지정한_커넥션도_라우팅() throws Exception {
+        assertEquals("replica", readOnly.execute(status -> nodeOf(routing, "sa", "")));
+        assertEquals("primary", readWrite.execute(status -> nodeOf(routing, "sa", "")));
+    }
+
+    private static String nodeOf(DataSource dataSource, String username, String password) {
+        try (Connection connection = dataSource.getConnection(username, password)) {
+            return new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                    .queryForObject("select name from node", String.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(20))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
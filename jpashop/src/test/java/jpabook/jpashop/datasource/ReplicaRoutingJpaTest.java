@@ -0,0 +1,107 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.cache.OrderSearchCache;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.MemberService;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 레플리카 라우팅 - 실제 애플리케이션과 같은 JpaTransactionManager + 하이버네이트
+ * - H2 URL 2개: 프라이머리, 레플리카 (스키마를 따로 만들 수 없어서 같은 메모리 DB를 가리키고,
+ *   레플리카 URL은 커넥션을 열 때 @NODE 변수를 'replica'로 설정한다 => 어느 쪽 커넥션인지 SQL로 구분)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jpashop.datasource.replica.enabled=true",
+        "jpashop.datasource.replica.urls=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1;INIT=SET @NODE = 'replica'"
+})
+public class ReplicaRoutingJpaTest {
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    OrderSearchCache orderSearchCache;
+
+    @Test
+    public void 읽기_전용_트랜잭션은_레플리카() throws Exception {
+        assertTrue(transactionManager instanceof JpaTransactionManager);
+
+        assertEquals("replica", readOnly().execute(status -> node()));
+        assertEquals("primary", new TransactionTemplate(transactionManager).execute(status -> node()));
+    }
+
+    @Test
+    public void 레플리카에서_읽은_엔티티는_캐시에_넣지_않음() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("레플리카회원");
+        Long memberId = memberService.join(member);
+        emf.getCache().evict(Member.class, memberId);
+
+        //when
+        CacheMode cacheMode = readOnly().execute(status -> {
+            em.find(Member.class, memberId);
+            return em.unwrap(Session.class).getCacheMode();
+        });
+
+        //then
+        assertEquals(CacheMode.GET, cacheMode);
+        assertFalse("레플리카 값은 2차 캐시에 들어가지 않는다.", emf.getCache().contains(Member.class, memberId));
+
+        new TransactionTemplate(transactionManager).execute(status -> em.find(Member.class, memberId));
+        assertTrue("프라이머리에서 읽은 값은 캐시에 들어간다.", emf.getCache().contains(Member.class, memberId));
+    }
+
+    @Test
+    public void 읽기_전용_트랜잭션의_주문_검색은_캐시_안함() throws Exception {
+        //given
+        OrderSearch orderSearch = new OrderSearch();
+
+        //when
+        int statements = readOnly().execute(status -> {
+            try (StatementCount count = SqlStatementCounter.start()) {
+                orderSearchCache.findOrderDtos(orderSearch);
+                orderSearchCache.findOrderDtos(orderSearch);
+                return count.getCount();
+            }
+        });
+
+        //then
+        assertEquals("두 번 다 DB에서 읽는다.", 2, statements);
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    private String node() {
+        return (String) em.createNativeQuery("select coalesce(@NODE, 'primary')").getSingleResult();
+    }
+}
@@ -0,0 +1,81 @@
+package jpabook.jpashop.domain.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    public void 시간순서로_증가() throws Exception {
+        //given
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+
+        //when
+        long first = generator.nextId();
+        long second = generator.nextId();
+        clock.addAndGet(1);
+        long third = generator.nextId();
+
+        //then
+        assertTrue("같은 ms 안에서도 증가해야 한다.", second > first);
+        assertTrue("시간이 흐르면 증가해야 한다.", third > second);
+        assertEquals("node id가 들어가야 한다.", 7, (third >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+    }
+
+    @Test
+    public void 시계가_뒤로_가도_중복없이_증가() throws Exception {
+        //given
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+        long before = generator.nextId();
+
+        //when
+        clock.addAndGet(-500);  // 시계 역행
+        long after = generator.nextId();
+
+        //then
+        assertTrue("시계가 뒤로 가도 id는 작아지면 안된다.", after > before);
+    }
+
+    @Test
+    public void 시퀀스가_넘치면_다음ms로() throws Exception {
+        //given
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> SnowflakeIdGenerator.EPOCH);
+
+        //when
+        long prev = generator.nextId();
+        for (int i = 0; i < SnowflakeIdGenerator.SEQUENCE_MASK + 10; i++) {
+            long next = generator.nextId();
+
+            //then
+            assertTrue("1ms에 4096개를 넘게 발급해도 계속 증가해야 한다.", next > prev);
+            prev = next;
+        }
+    }
+
+    @Test(expected = MappingException.class)
+    public void node_id_설정이_없으면_예외() throws Exception {
+        //given
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(SnowflakeIdGenerator.NODE_ID_SETTING, "")    // application.yml 기본값 (JPASHOP_NODE_ID 없음)
+                .build();
+
+        //when
+        try {
+            new SnowflakeIdGenerator().configure(null, new Properties(), registry);   // -> 예외 발생
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+}
@@ -0,0 +1,78 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsEndpointTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+
+    @Test
+    public void 메서드_SQL_지연시간_노출() throws Exception {
+        //given
+        memberService.findMembers();
+
+        //then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("jpashop_method_seconds{class=\"MemberService\",layer=\"service\",method=\"findMembers\",outcome=\"SUCCESS\",quantile=\"0.99\"")))
+                .andExpect(content().string(containsString("jpashop_method_seconds_bucket{class=\"MemberRepository\",layer=\"repository\",method=\"findAll\"")))
+                .andExpect(content().string(containsString("jpashop_sql_seconds_count{operation=\"select\"")));
+    }
+
+    @Test
+    public void 캐시_적중률_노출() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"item\"")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"member\"")));
+    }
+
+    @Test
+    public void SQL_모양_정규화() throws Exception {
+        assertEquals("select m.id from member m where m.name = ? and m.id in (?)",
+                SqlTimingListener.normalize("SELECT m.id\n  FROM member m WHERE m.name = 'kim' AND m.id IN (?, ?,  ?)"));
+        assertEquals("select * from orders o0_ where o0_.status = ? limit ?",
+                SqlTimingListener.normalize("select * from orders o0_ where o0_.status = ? limit 101"));
+    }
+
+    @Test
+    public void SQL_타이머는_모양별로_제한() throws Exception {
+        //given
+        SqlTimingListener listener = new SqlTimingListener();
+
+        //when - IN 목록 크기만 다른 SQL 2000개 (SQL 문자열은 2000개, 모양은 1개)
+        StringBuilder in = new StringBuilder("?");
+        for (int i = 0; i < 2000; i++) {
+            listener.timerOf("select m.member_id from member m where m.name in (" + in + ")");
+            in.append(", ?");
+        }
+
+        //then
+        assertSame("IN 목록 크기가 달라도 같은 타이머",
+                listener.timerOf("select m.member_id from member m where m.name in (?)"),
+                listener.timerOf("select m.member_id from member m where m.name in (?, ?, ?)"));
+        assertEquals("모양이 하나뿐이라 새 모양도 자기 타이머를 받는다.", "select i.item_id from item i where i.item_id = ?",
+                listener.timerOf("select i.item_id from item i where i.item_id = ?").getId().getTag("sql"));
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드가 실행하는 SQL 수 상한 (SqlStatementBudgetListener가 검사)
+ * - @Before에서 데이터를 넣는 SQL은 세지 않는다. 테스트 메서드 본문만 센다.
+ *
+ * ex) @SqlStatementBudget(3) => 주문이 100건이어도 SQL은 3번 이하
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlStatementBudget {
+
+    int value();
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import static org.junit.Assert.*;
+
+/**
+ * @SqlStatementBudget 검사
+ * - beforeTestExecution / afterTestExecution 은 @Before 이후, @After 이전에 테스트 메서드만 감싼다.
+ * - META-INF/spring.factories로 모든 스프링 테스트에 등록된다.
+ */
+public class SqlStatementBudgetListener extends AbstractTestExecutionListener {
+
+    private static final String COUNT = SqlStatementBudgetListener.class.getName() + ".COUNT";
+
+    @Override
+    public void beforeTestExecution(TestContext testContext) {
+        if (testContext.getTestMethod().isAnnotationPresent(SqlStatementBudget.class)) {
+            testContext.setAttribute(COUNT, SqlStatementCounter.start());
+        }
+    }
+
+    @Override
+    public void afterTestExecution(TestContext testContext) {
+        StatementCount count = (StatementCount) testContext.removeAttribute(COUNT);
+        if (count == null) {
+            return;
+        }
+        count.close();
+        if (testContext.getTestException() != null) {
+            return;
+        }
+        int budget = testContext.getTestMethod().getAnnotation(SqlStatementBudget.class).value();
+        assertTrue("SQL은 " + budget + "번 이하로 실행되어야 합니다. 실행=" + count.getCount(),
+                count.getCount() <= budget);
+    }
+}
@@ -0,0 +1,199 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.cache.CategoryTree;
+import jpabook.jpashop.cache.CategoryTreeCache;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.dto.CategoryItemDto;
+import jpabook.jpashop.dto.UpdateItemDto;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import jpabook.jpashop.repository.CategoryItemSearch;
+import jpabook.jpashop.repository.CategoryItemSort;
+import jpabook.jpashop.repository.CursorSlice;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 카테고리 트리 (materialized path + 트리 스냅샷)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class CategoryServiceTest {
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    CategoryService categoryService;
+    @Autowired
+    CategoryTreeCache categoryTreeCache;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 하위_트리_조상_조회() throws Exception {
+        //given
+        Long root = categoryService.addCategory("트리-루트", null);
+        Long child = categoryService.addCategory("트리-자식", root);
+        Long grandChild = categoryService.addCategory("트리-손자", child);
+        Long otherRoot = categoryService.addCategory("트리-다른루트", null);
+
+        //when
+        List<Long> subtree = ids(categoryService.findSubtree(root));
+        List<Long> ancestors = ids(categoryService.findAncestors(grandChild));
+
+        //then
+        assertEquals(Arrays.asList(root, child, grandChild), subtree);
+        assertFalse(subtree.contains(otherRoot));
+        assertEquals("루트부터 부모까지", Arrays.asList(root, child), ancestors);
+        assertEquals(2, categoryService.findOne(grandChild).getDepth());
+    }
+
+    @Test
+    public void 하위_트리_상품_쿼리_1번() throws Exception {
+        //given
+        Long root = categoryService.addCategory("상품트리-루트", null);
+        Long child = categoryService.addCategory("상품트리-자식", root);
+        Long grandChild = categoryService.addCategory("상품트리-손자", child);
+        Long book1 = fixture.createBook("상품트리 JPA", 10000, 10);
+        Long book2 = fixture.createBook("상품트리 SPRING", 10000, 10);
+        categoryService.addItem(child, book1);
+        categoryService.addItem(grandChild, book1);   // 두 카테고리에 속해도 한 번만
+        categoryService.addItem(grandChild, book2);
+
+        //when
+        List<Item> items;
+        try (StatementCount count = SqlStatementCounter.start()) {
+            items = categoryService.findItemsInSubtree(root);
+
+            //then
+            assertEquals("깊이와 상관없이 카테고리 1번 + 상품 1번", 2, count.getCount());
+        }
+        assertEquals(Arrays.asList(book1, book2), items.stream().map(Item::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void 트리_스냅샷_교체() throws Exception {
+        //given
+        Long root = categoryService.addCategory("스냅샷-루트", null);
+        CategoryTree before = categoryTreeCache.get();
+
+        //when
+        Long child = categoryService.addCategory("스냅샷-자식", root);
+
+        //then
+        CategoryTree after = categoryTreeCache.get();
+        assertNotSame("커밋되면 새 스냅샷으로 바뀐다.", before, after);
+        assertNull("이전 스냅샷은 바뀌지 않는다.", before.get(child));
+        assertEquals(Arrays.asList(root, child), after.subtreeIds(root));
+        assertEquals(root, after.ancestors(child).get(0).getId());
+        assertEquals(1, after.get(child).getDepth());
+    }
+
+    @Test
+    public void 카테고리_상품_가격순_페이징() throws Exception {
+        //given
+        Long category = categoryService.addCategory("페이징-카테고리", null);
+        Long child = categoryService.addCategory("페이징-자식", category);
+        Long b3000 = fixture.createBook("페이징 A", 3000, 10);
+        Long b1000a = fixture.createBook("페이징 B", 1000, 10);
+        Long b2000 = fixture.createBook("페이징 C", 2000, 10);
+        Long b1000b = fixture.createBook("페이징 D", 1000, 10);
+        Long b5000 = fixture.createBook("페이징 E", 5000, 10);
+        for (Long itemId : Arrays.asList(b3000, b1000a, b2000, b1000b, b5000)) {
+            categoryService.addItem(category, itemId);
+        }
+        categoryService.addItem(category, b3000);   // 이미 있으면 그대로
+        categoryService.addItem(child, b2000);
+
+        CategoryItemSearch search = new CategoryItemSearch();
+        search.setSort(CategoryItemSort.PRICE);
+        search.setSize(2);
+
+        //when
+        List<Long> itemIds = new ArrayList<>();
+        int pages = 0;
+        do {
+            try (StatementCount count = SqlStatementCounter.start()) {
+                CursorSlice<CategoryItemDto> page = categoryService.findItemPage(category, search);
+                assertEquals("페이지마다 쿼리 1번", 1, count.getCount());
+                page.getContent().forEach(dto -> itemIds.add(dto.getItemId()));
+                search.setCursor(page.getNextCursor());
+            }
+            pages++;
+        } while (search.getCursor() != null);
+
+        //then
+        assertEquals("가격, 같으면 상품 id 순", Arrays.asList(b1000a, b1000b, b2000, b3000, b5000), itemIds);
+        assertEquals(3, pages);
+        assertEquals(5L, categoryService.countItems(category));
+        assertEquals(Collections.singletonMap(child, 1L), categoryService.countItemsOfChildren(category));
+    }
+
+    @Test
+    public void 상품_가격_변경시_정렬_반영() throws Exception {
+        //given
+        Long category = categoryService.addCategory("가격변경-카테고리", null);
+        Long cheap = fixture.createBook("가격변경 A", 1000, 10);
+        Long expensive = fixture.createBook("가격변경 B", 2000, 10);
+        categoryService.addItem(category, cheap);
+        categoryService.addItem(category, expensive);
+
+        //when
+        itemService.updateItem(cheap, UpdateItemDto.builder().name("가격변경 A").price(3000).stockQuantity(10).build());
+
+        //then
+        CategoryItemSearch search = new CategoryItemSearch();
+        search.setSort(CategoryItemSort.PRICE);
+        List<CategoryItemDto> items = categoryService.findItemPage(category, search).getContent();
+        assertEquals(Arrays.asList(expensive, cheap), items.stream().map(CategoryItemDto::getItemId).collect(Collectors.toList()));
+        assertEquals(3000, items.get(1).getPrice());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 다른_부모로_옮기기_예외() throws Exception {
+        Category parent = new Category();
+        Category other = new Category();
+        Category child = new Category();
+        parent.addChildCategory(child);
+
+        other.addChildCategory(child);  // -> 예외 발생
+
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 저장된_루트_옮기기_예외() throws Exception {
+        //given
+        Long rootId = categoryService.addCategory("루트", null);
+        categoryService.addCategory("자식", rootId);
+        Category root = categoryService.findOne(rootId);
+        Category other = categoryService.findOne(categoryService.addCategory("다른 루트", null));
+
+        //when
+        other.addChildCategory(root);   // 부모가 없는 저장된 카테고리 -> 예외 발생
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    private static List<Long> ids(List<Category> categories) {
+        return categories.stream().map(Category::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.dto.UpdateItemDto;
+import jpabook.jpashop.monitoring.NPlusOneDetector;
+import jpabook.jpashop.monitoring.NPlusOneDetector.Detection;
+import jpabook.jpashop.monitoring.NPlusOneDetector.DetectionScope;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementCounter.StatementCount;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 2차 캐시 (상품, 회원)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class EntityCacheTest {
+
+    private static final int ORDERS = 6;   // N+1 기준(threshold 5) 이상
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    NPlusOneDetector nPlusOneDetector;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 상품_캐시_적중() throws Exception {
+        //given
+        Long itemId = fixture.createBook("캐시 JPA", 10000, 100);
+        itemService.findOne(itemId);
+
+        //when
+        try (StatementCount count = SqlStatementCounter.start()) {
+            itemService.findOne(itemId);
+
+            //then
+            assertEquals("2차 캐시에서 읽으면 SQL이 나가지 않는다.", 0, count.getCount());
+        }
+    }
+
+    @Test
+    public void 재고_변경시_캐시_무효화() throws Exception {
+        //given
+        Long memberId = fixture.createMember("캐시회원");
+        Long itemId = fixture.createBook("캐시 재고 JPA", 10000, 100);
+        itemService.findOne(itemId);
+
+        //when
+        Long orderId = orderService.order(memberId, itemId, 3);
+
+        //then
+        assertEquals("주문한 만큼 재고가 줄어야 한다.", 97, itemService.findOne(itemId).getStockQuantity());
+
+        orderService.cancelOrder(orderId);
+        assertEquals("취소하면 재고가 돌아와야 한다.", 100, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 수정시_캐시_반영() throws Exception {
+        //given
+        Long memberId = fixture.createMember("캐시수정회원");
+        Long itemId = fixture.createBook("캐시 수정 JPA", 10000, 100);
+        memberService.findOne(memberId);
+        itemService.findOne(itemId);
+
+        //when
+        memberService.update(memberId, "캐시수정회원2");
+        itemService.updateItem(itemId, UpdateItemDto.builder()
+                .name("캐시 수정 JPA 2판")
+                .price(20000)
+                .stockQuantity(50)
+                .build());
+
+        //then
+        assertEquals("캐시수정회원2", memberService.findOne(memberId).getName());
+        assertEquals("캐시 수정 JPA 2판", itemService.findOne(itemId).getName());
+        assertEquals(20000, itemService.findOne(itemId).getPrice());
+        assertEquals(50, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 캐시_적중은_N플러스1_아님() throws Exception {
+        //given
+        Long itemId = fixture.createBook("캐시 N+1 JPA", 10000, 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Long memberId = fixture.createMember("캐시N+1회원" + i);
+            memberService.findOne(memberId);    // 회원은 2차 캐시에 올려둔다.
+            orderIds.add(orderService.order(memberId, itemId, 1));
+        }
+
+        //when
+        List<Detection> detections = transactionTemplate.execute(status -> {
+            try (DetectionScope scope = nPlusOneDetector.start()) {
+                List<Order> orders = em.createQuery("select o from Order o where o.id in :ids", Order.class)
+                        .setParameter("ids", orderIds)
+                        .getResultList();
+                for (Order order : orders) {
+                    order.getMember().getName();        // 2차 캐시에서 (SQL 없음)
+                    order.getDelivery().getAddress();   // 캐시 대상이 아니라 SQL
+                }
+                return scope.getDetections();
+            }
+        });
+
+        //then
+        List<String> targets = detections.stream().map(Detection::getTarget).collect(Collectors.toList());
+        assertFalse("2차 캐시에서 읽은 회원은 N+1로 세지 않는다. " + targets, targets.contains(Member.class.getName()));
+        assertTrue("SQL로 읽은 배송은 N+1이다. " + targets, targets.contains(Delivery.class.getName()));
+    }
+}
@@ -0,0 +1,95 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.dto.MemberJoinResult;
+import jpabook.jpashop.dto.MemberJoinResult.Status;
+import jpabook.jpashop.repository.MemberRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 회원 일괄 가입 - joinAll()은 트랜잭션을 직접 나눠서 커밋하므로 테스트 트랜잭션(롤백) 안에서 돌릴 수 없다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class MemberBulkJoinTest {
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberNameFilter memberNameFilter;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 회원_일괄_가입() throws Exception {
+        //given
+        fixture.createMember("kim");
+
+        List<Member> members = Arrays.asList(member("park"), member("kim"), member("park"), member(""), member("choi"));
+
+        //when
+        List<MemberJoinResult> results = memberService.joinAll(members);
+
+        //then
+        assertEquals("요청 순서대로 결과가 나온다.",
+                Arrays.asList(Status.CREATED, Status.DUPLICATE, Status.DUPLICATE, Status.INVALID, Status.CREATED),
+                statuses(results));
+        assertEquals("park", memberRepository.findOne(results.get(0).getId()).getName());
+        assertEquals("choi", memberRepository.findOne(results.get(4).getId()).getName());
+        assertNull("가입되지 않은 줄은 id가 없다.", results.get(1).getId());
+        assertEquals(1, memberRepository.findByName("park").size());
+        assertTrue("가입한 이름은 필터에 들어간다.", memberNameFilter.mightContain("choi"));
+    }
+
+    @Test
+    public void 회원_일괄_가입_검사_후_다른_가입과_경합() throws Exception {
+        //given
+        // 다른 WAS가 방금 가입시킨 이름 => 이 서버의 필터는 모르고, 중복 검사도 통과한다.
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(member("lee")));
+
+        List<Member> members = Arrays.asList(member("jung"), member("lee"), member("yoon"));
+
+        //when
+        List<MemberJoinResult> results = memberService.joinAll(members);
+
+        //then
+        assertEquals("제약에 걸린 줄만 DUPLICATE, 나머지는 가입된다.",
+                Arrays.asList(Status.CREATED, Status.DUPLICATE, Status.CREATED),
+                statuses(results));
+        assertNull("가입되지 않은 줄은 id가 없다.", results.get(1).getId());
+        assertEquals("jung", memberRepository.findOne(results.get(0).getId()).getName());
+        assertEquals("yoon", memberRepository.findOne(results.get(2).getId()).getName());
+        assertEquals(1, memberRepository.findByName("lee").size());
+        assertTrue("경합한 이름도 필터에 들어간다.", memberNameFilter.mightContain("lee"));
+    }
+
+    private static List<Status> statuses(List<MemberJoinResult> results) {
+        return results.stream().map(MemberJoinResult::getStatus).collect(Collectors.toList());
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return member;
+    }
+}
@@ -33,6 +33,8 @@ public class MemberServiceTest {
     @Autowired
     MemberRepository memberRepository;
     @Autowired
+    MemberNameFilter memberNameFilter;
+    @Autowired
     EntityManager em;
 
     @Test
@@ -79,4 +81,54 @@ public class MemberServiceTest {
         fail("예외가 발생해야 한다.");   // 코드가 돌다 여기로 오면 안된다!
     }
 
-}
\ No newline at end of file
+    @Test(expected = IllegalStateException.class)
+    public void 중복_회원_예외_DB_제약() throws Exception {
+        //given
+        Member saved = new Member();
+        saved.setName("lee");
+        memberRepository.save(saved);   // 서비스를 거치지 않음 => 필터는 모르는 이름 (다른 WAS에서 가입한 경우와 같음)
+        em.flush();
+        assertFalse("필터가 모르는 이름이라 중복 조회를 건너뛴다.", memberNameFilter.mightContain("lee"));
+
+        Member member = new Member();
+        member.setName("lee");
+
+        //when
+        memberService.join(member);     // -> uk_member_name 제약 위반 => 예외 발생
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 회원_이름변경_중복_예외() throws Exception {
+        //given
+        Member saved = new Member();
+        saved.setName("choi");
+        memberRepository.save(saved);   // 필터가 모르는 이름 => 중복 조회를 건너뛰고 제약이 막는다.
+        Member member = new Member();
+        member.setName("jung");
+        Long memberId = memberService.join(member);
+
+        //when
+        memberService.update(memberId, "choi");  // -> flush 시점에 uk_member_name 제약 위반 => 예외 발생
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 회원_이름변경_같은_이름() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("han");
+        Long memberId = memberService.join(member);
+
+        //when
+        memberService.update(memberId, "han");
+
+        //then
+        assertEquals("자기 이름은 중복이 아니다.", "han", memberRepository.findOne(memberId).getName());
+    }
+
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 접수 큐 - 배치 커밋이 끝나야 결과가 오므로 테스트 트랜잭션(롤백) 안에서 돌릴 수 없다.
+ * stop()으로 큐를 멈추기 때문에 클래스가 끝나면 컨텍스트를 버린다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.order-intake.enabled=true")
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class OrderIntakeServiceTest {
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    OrderIntakeService orderIntakeService;
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Test(expected = OrderQueueFullException.class)
+    public void 종료_후_접수는_거절() throws Exception {
+        //given
+        Long memberId = fixture.createMember("접수큐회원");
+        Long itemId = fixture.createBook("접수큐 JPA", 10000, 10);
+
+        Long orderId = orderIntakeService.submit(memberId, itemId, 1).get(10, TimeUnit.SECONDS);
+        assertNotNull("종료 전 접수는 배치로 처리된다.", orderRepository.findOne(orderId));
+
+        orderIntakeService.stop();
+
+        //when
+        orderIntakeService.submit(memberId, itemId, 1);   // 처리할 쓰레드가 없는 큐에 쌓이면 안된다.
+
+        //then
+        fail("종료 후 접수는 예외가 발생해야 한다.");
+    }
+}
@@ -0,0 +1,109 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.CommittedFixture;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 여러 쓰레드가 동시에 같은 상품을 주문하는 상황
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Import(CommittedFixture.class)
+@DirtiesContext
+public class OrderServiceConcurrencyTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    @Autowired
+    CommittedFixture fixture;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 동시주문_재고초과판매_없음() throws Exception {
+        //given
+        int stockQuantity = 100;
+        int orderCount = 300;   // 재고보다 많은 주문이 동시에 몰림
+
+        Long memberId = fixture.createMember("동시주문회원");
+        Long itemId = fixture.createBook("동시주문 JPA", 10000, stockQuantity);
+
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch latch = new CountDownLatch(orderCount);
+
+        //when
+        for (int i = 0; i < orderCount; i++) {
+            executor.submit(() -> {
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    soldOut.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then
+        assertEquals("재고 수량만큼만 주문이 성공해야 한다.", stockQuantity, success.get());
+        assertEquals("나머지 주문은 재고 부족으로 실패해야 한다.", orderCount - stockQuantity, soldOut.get());
+        assertEquals("재고는 음수가 되지 않고 정확히 0이 되어야 한다.", 0, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 분산재고_동시주문_재고부족_오탐없음() throws Exception {
+        //given
+        int stockQuantity = 200;
+        Long memberId = fixture.createMember("분산재고동시주문회원");
+        Long itemId = fixture.createBook("분산재고동시주문 JPA", 10000, stockQuantity);
+        itemService.shardStock(itemId, 8);  // 버킷당 25개 => 버킷이 비면서 다른 버킷에서 빌려오는 주문끼리 부딪친다.
+
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch latch = new CountDownLatch(stockQuantity);
+
+        //when
+        for (int i = 0; i < stockQuantity; i++) {
+            executor.submit(() -> {
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    soldOut.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue("시간 안에 주문이 끝나야 한다.", latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        //then
+        assertEquals("전체 재고가 충분하면 재고 부족이 나면 안 된다.", 0, soldOut.get());
+        assertEquals(stockQuantity, success.get());
+        assertEquals("버킷 합계가 정확히 0이어야 한다.", 0, itemService.findOne(itemId).getStockQuantity());
+    }
+}
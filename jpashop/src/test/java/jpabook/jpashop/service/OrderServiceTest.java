@@ -6,8 +6,14 @@ import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.dto.OrderLineDto;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.CursorSlice;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSort;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +22,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -29,7 +38,11 @@ public class OrderServiceTest {
     @Autowired
     OrderService orderService;
     @Autowired
+    ItemService itemService;
+    @Autowired
     OrderRepository orderRepository;
+    @Autowired
+    OrderSimpleQueryRepository orderSimpleQueryRepository;
 
     @Test
     public void 상품주문() throws Exception {
@@ -71,6 +84,69 @@ public class OrderServiceTest {
      * removeStock에 대해서 단위 테스트 하는게 더 좋다
      */
 
+    @Test
+    public void 장바구니주문() throws Exception {
+        //given
+        Member member = createMember();
+        Item book1 = createBook("시골 JPA", 10000, 10);
+        Item book2 = createBook("시골 Spring", 20000, 10);
+
+        List<OrderLineDto> lines = Arrays.asList(
+                new OrderLineDto(book2.getId(), 1),
+                new OrderLineDto(book1.getId(), 2),
+                new OrderLineDto(book1.getId(), 1));   // 같은 상품이 여러 줄
+
+        //when
+        Long orderId = orderService.checkout(member.getId(), lines);
+
+        //then
+        Order getOrder = orderRepository.findOne(orderId);
+
+        assertEquals("상품 주문 시 상태는 ORDER", OrderStatus.ORDER, getOrder.getStatus());
+        assertEquals("같은 상품은 주문상품 하나로 합쳐져야 한다.", 2, getOrder.getOrderItems().size());
+        assertEquals("주문 가격은 상품별 가격 * 수량의 합이다.", 10000 * 3 + 20000, getOrder.getTotalPrice());
+        assertEquals("주문 수량만큼 재고가 줄어야 한다.", 7, book1.getStockQuantity());
+        assertEquals("주문 수량만큼 재고가 줄어야 한다.", 9, book2.getStockQuantity());
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 장바구니주문_재고수량초과() throws Exception {
+        //given
+        Member member = createMember();
+        Item book1 = createBook("시골 JPA", 10000, 10);
+        Item book2 = createBook("시골 Spring", 20000, 1);
+
+        //when
+        orderService.checkout(member.getId(), Arrays.asList(
+                new OrderLineDto(book1.getId(), 1),
+                new OrderLineDto(book2.getId(), 2)));
+
+        //then
+        fail("재고 수량 부족 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 장바구니주문_수량_0이하() throws Exception {
+        //given
+        Member member = createMember();
+        Item book1 = createBook("시골 JPA", 10000, 10);
+        Item book2 = createBook("시골 Spring", 20000, 10);
+
+        //when
+        try {
+            orderService.checkout(member.getId(), Arrays.asList(
+                    new OrderLineDto(book1.getId(), 1),
+                    new OrderLineDto(book2.getId(), -5)));
+            fail("수량이 0 이하면 예외가 발생해야 한다.");
+        } catch (IllegalArgumentException e) {
+            // 재고를 늘리는 주문은 받지 않는다.
+        }
+
+        //then
+        em.clear();
+        assertEquals("재고는 그대로여야 한다.", 10, em.find(Item.class, book2.getId()).getStockQuantity());
+    }
+
     @Test
     public void 주문취소() throws Exception {
         //given
@@ -91,6 +167,83 @@ public class OrderServiceTest {
         assertEquals("주문이 취소된 상품은 그만큼 재고가 증가해야 한다.", 10, book.getStockQuantity());
     }
 
+    @Test
+    public void 주문금액_역정규화() throws Exception {
+        //given
+        Member member = createMember();
+        Item book = createBook("시골 JPA", 10000, 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        em.flush();
+        em.clear();
+
+        //when
+        Order getOrder = orderRepository.findOne(orderId);
+        getOrder.getOrderItems().get(0).setCount(3);
+        em.flush();
+        em.clear();
+
+        //then
+        Order changed = orderRepository.findOne(orderId);
+        assertEquals("주문상품 수량이 바뀌면 주문 금액도 바뀐다.", 30000, changed.getTotalPrice());
+        assertFalse("주문 금액을 읽을 때 주문상품을 로딩하지 않는다.",
+                em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(changed, "orderItems"));
+    }
+
+    @Test
+    public void 주문금액_검색_정렬() throws Exception {
+        //given
+        Member member = createMember();
+        Item book = createBook("시골 JPA", 10000, 100);
+        for (int count = 1; count <= 5; count++) {
+            orderService.order(member.getId(), book.getId(), count);   // 10000 ~ 50000
+        }
+        em.flush();
+        em.clear();
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(member.getName());
+        orderSearch.setSort(OrderSort.TOTAL_PRICE);
+        orderSearch.setMinTotalPrice(20000);
+        orderSearch.setSize(2);
+
+        //when
+        CursorSlice<OrderSimpleQueryDto> first = orderSimpleQueryRepository.findOrderDtos(orderSearch);
+        orderSearch.setCursor(first.getNextCursor());
+        CursorSlice<OrderSimpleQueryDto> second = orderSimpleQueryRepository.findOrderDtos(orderSearch);
+
+        //then
+        assertEquals(Arrays.asList(50000, 40000), totalPrices(first.getContent()));
+        assertEquals(Arrays.asList(30000, 20000), totalPrices(second.getContent()));
+        assertFalse("20000 미만은 조회되지 않는다.", second.hasNext());
+    }
+
+    @Test
+    public void 배치주문_분산재고_부족이면_차감없음() throws Exception {
+        //given
+        Member member = createMember();
+        Item book = createBook("분산재고 부족", 10000, 10);
+        itemService.shardStock(book.getId(), 4);    // 버킷 3, 3, 2, 2 => 다른 버킷에서 빌려오다가 모자라서 실패
+
+        //when
+        try {
+            orderService.orderInBatch(member.getId(), book.getId(), 11);
+            fail("재고 수량 부족 예외가 발생해야 한다.");
+        } catch (NotEnoughStockException e) {
+            // 배치 주문은 재고 부족에 롤백하지 않는다.
+        }
+
+        //then
+        Long bucketStock = em.createQuery(
+                        "select sum(b.stockQuantity) from ItemStockBucket b where b.item.id = :itemId", Long.class)
+                .setParameter("itemId", book.getId())
+                .getSingleResult();
+        assertEquals("빌려온 버킷 재고는 롤백 없이도 돌려놓아야 한다.", 10L, bucketStock.longValue());
+    }
+
+    private List<Integer> totalPrices(List<OrderSimpleQueryDto> dtos) {
+        return dtos.stream().map(OrderSimpleQueryDto::getTotalPrice).collect(Collectors.toList());
+    }
+
     private Item createBook(String name, int price, int stockQuantity) {
         Item book = new Book();
         book.setName(name);